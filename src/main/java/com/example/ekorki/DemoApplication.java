@@ -1,15 +1,18 @@
 package com.example.ekorki;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 @EnableCaching
 @EnableAsync
+@EnableScheduling
 @SpringBootApplication(exclude = { SecurityAutoConfiguration.class })
 public class DemoApplication {
 	public static void main(String[] args) {
@@ -17,7 +20,7 @@ public class DemoApplication {
 	}
 
 	@Bean
-	public BCryptPasswordEncoder bCryptPasswordEncoder() {
-		return new BCryptPasswordEncoder(14);
+	public BCryptPasswordEncoder bCryptPasswordEncoder(@Value("${security.password.bcrypt-strength:14}") int strength) {
+		return new BCryptPasswordEncoder(strength);
 	}
 }
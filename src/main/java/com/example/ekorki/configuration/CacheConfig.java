@@ -23,7 +23,7 @@ public class CacheConfig {
                 .maximumSize(1000)
                 .expireAfterWrite(Duration.ofMinutes(10))
                 .recordStats());
-        cacheManager.setCacheNames(Arrays.asList("courses", "chapters", "subchapters", "contentItems"));
+        cacheManager.setCacheNames(Arrays.asList("courses", "chapters", "subchapters", "contentItems", "ownerCards"));
         return cacheManager;
     }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.example.ekorki.configuration;
 import com.example.ekorki.dto.review.ReviewTargetType;
 import com.example.ekorki.entity.*;
 import com.example.ekorki.repository.*;
+import com.example.ekorki.service.media.ImageVariantService;
 import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -12,9 +13,9 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StreamUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Instant;
@@ -36,10 +37,12 @@ public class DataInitializer {
     private final PurchasedCourseRepository purchasedCourseRepository;
     private final ReviewRepository reviewRepository;
     private final TeacherProfileRepository teacherProfileRepository;
+    private final ImageVariantService imageVariantService;
 
     private final BCryptPasswordEncoder passwordEncoder;
     private static final Logger logger = LoggerFactory.getLogger(DataInitializer.class);
     private Random random = new Random();
+    private final Map<String, ImageVariantService.StoredImage> demoImages = new HashMap<>();
 
     @PostConstruct
     public void init() {
@@ -160,8 +163,13 @@ public class DataInitializer {
         profile.setFullName(fullName);
         profile.setDescription(description);
         profile.setCreatedAt(new Date());
-        profile.setPicture(loadProfileImage(profileImageIndex));
-        profile.setPictureMimeType("image/png");
+        ImageVariantService.StoredImage picture = loadDemoImage(
+                String.format("/demo-data/profile-pictures/profile%d.png", profileImageIndex));
+        if (picture != null) {
+            profile.setPictureMediaId(picture.media().getId());
+            profile.setPictureSize(picture.media().getSize());
+            profile.setPictureMimeType(picture.mimeType());
+        }
         profile.setBadgesVisible(true);
         userProfileRepository.save(profile);
     }
@@ -261,8 +269,13 @@ public class DataInitializer {
         course.setReview(BigDecimal.ZERO);
         course.setReviewNumber(0);
         course.setDescription("Comprehensive course covering all aspects of " + name);
-        course.setBanner(loadBannerImage(bannerIndex));
-        course.setMimeType("image/png");
+        ImageVariantService.StoredImage banner = loadDemoImage(
+                String.format("/demo-data/courses-banners/banner%d.png", bannerIndex));
+        if (banner != null) {
+            course.setBannerMediaId(banner.media().getId());
+            course.setBannerSize(banner.media().getSize());
+            course.setMimeType(banner.mimeType());
+        }
         course.setCreatedAt(LocalDateTime.now().minusMonths(6 + random.nextInt(24)).minusDays(random.nextInt(24)));
         course.setUpdatedAt(LocalDateTime.now().minusMonths(random.nextInt(5)));
         CourseEntity savedCourse = courseRepository.save(course);
@@ -373,26 +386,20 @@ public class DataInitializer {
         }
     }
 
-    private byte[] loadProfileImage(int index) {
-        try {
-            String imagePath = String.format("/demo-data/profile-pictures/profile%d.png", index);
-            ClassPathResource resource = new ClassPathResource(imagePath);
-            return StreamUtils.copyToByteArray(resource.getInputStream());
-        } catch (IOException e) {
-            logger.warn("Failed to load profile image: " + index, e);
-            return new byte[0];
+    // Obrazy demo powtarzają się między użytkownikami - każdy dekodujemy i zapisujemy tylko raz
+    private ImageVariantService.StoredImage loadDemoImage(String imagePath) {
+        if (demoImages.containsKey(imagePath)) {
+            return demoImages.get(imagePath);
         }
-    }
 
-    private byte[] loadBannerImage(int index) {
-        try {
-            String imagePath = String.format("/demo-data/courses-banners/banner%d.png", index);
-            ClassPathResource resource = new ClassPathResource(imagePath);
-            return StreamUtils.copyToByteArray(resource.getInputStream());
+        ImageVariantService.StoredImage image = null;
+        try (InputStream content = new ClassPathResource(imagePath).getInputStream()) {
+            image = imageVariantService.store(content);
         } catch (IOException e) {
-            logger.warn("Failed to load banner image: " + index, e);
-            return new byte[0];
+            logger.warn("Failed to load demo image: " + imagePath, e);
         }
+        demoImages.put(imagePath, image);
+        return image;
     }
 
     private void createCourseReviews(List<UserEntity> users, List<CourseEntity> courses) {
@@ -2,6 +2,7 @@ package com.example.ekorki.configuration;
 
 import com.example.ekorki.filter.JWTFilter;
 import com.example.ekorki.service.AppUserDetailsService;
+import com.example.ekorki.service.PasswordHashingService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -18,7 +19,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.access.expression.DefaultWebSecurityExpressionHandler;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -37,6 +37,9 @@ public class SecurityConfiguration {
     @Autowired
     private JWTFilter jwtFilter;
 
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
     // Define the security filter chain for HTTP requests
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -61,6 +64,8 @@ public class SecurityConfiguration {
                     "/course/search",
                     "/course/get-best",
                     "/course/get-one/**",
+                    "/course/banner/**",
+                    "/media/**",
                     "/course/tags/search",
                     "/course/get-info/**",
                     "/course/user/*",
@@ -113,6 +118,10 @@ public class SecurityConfiguration {
 
                 .requestMatchers("/task/create").hasAnyAuthority("USER")
 
+                .requestMatchers("/upload/**").hasAnyAuthority("USER")
+
+                .requestMatchers("/actuator/metrics/**").hasAnyAuthority("ADMIN")
+
                 .requestMatchers("/payment-history").hasAnyAuthority("USER")
 
                 // Require authentication for all other requests
@@ -128,10 +137,11 @@ public class SecurityConfiguration {
     }
 
     // Define the authentication provider for user authentication
+    // BCrypt runs on the bounded password hashing pool, not on the request thread
     @Bean
     public AuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
-        provider.setPasswordEncoder(new BCryptPasswordEncoder(10));
+        provider.setPasswordEncoder(passwordHashingService);
         provider.setUserDetailsService(userDetailsService);
         return provider;
     }
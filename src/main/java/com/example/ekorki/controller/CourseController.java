@@ -3,9 +3,11 @@ package com.example.ekorki.controller;
 import com.example.ekorki.dto.course.CourseCreateDTO;
 import com.example.ekorki.dto.http.HttpResponseDTO;
 import com.example.ekorki.dto.course.CourseInfoDTO;
+import com.example.ekorki.dto.course.CourseMediaStatusDTO;
 import com.example.ekorki.dto.course.CourseUpdateDTO;
 import com.example.ekorki.exception.ApiException;
 import com.example.ekorki.model.UserPrincipals;
+import com.example.ekorki.service.catalog.ResourceVersions;
 import com.example.ekorki.service.entity.CourseService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityNotFoundException;
@@ -18,6 +20,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import com.example.ekorki.dto.courseShop.CourseDataDTO;
 
@@ -33,6 +36,7 @@ import static java.time.LocalDateTime.now;
 @RequiredArgsConstructor
 public class CourseController {
     private final CourseService courseService;
+    private final ResourceVersions resourceVersions;
 
     @PostMapping(value = "/create", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<HttpResponseDTO> createCourse(
@@ -46,13 +50,17 @@ public class CourseController {
 
         try{
             ObjectMapper mapper = new ObjectMapper();
-            boolean isCreated = courseService.createCourse(mapper.readValue(courseDataJson, CourseCreateDTO.class), bannerFile, contentFiles, loggedInUserId);
-            if(isCreated){
-                return ResponseEntity.ok(HttpResponseDTO.builder()
+            Long courseId = courseService.createCourse(mapper.readValue(courseDataJson, CourseCreateDTO.class), bannerFile, contentFiles, loggedInUserId);
+            if(courseId != null){
+                // Pliki przetwarzane są w tle - stan do odpytania pod mediaStatusUrl
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(HttpResponseDTO.builder()
                         .timestamp(now().toString())
-                        .message("Course created")
-                        .status(HttpStatus.OK)
-                        .statusCode(HttpStatus.OK.value())
+                        .data(Map.of(
+                                "courseId", courseId,
+                                "mediaStatusUrl", "/course/" + courseId + "/media-status"))
+                        .message("Course created, media processing in progress")
+                        .status(HttpStatus.ACCEPTED)
+                        .statusCode(HttpStatus.ACCEPTED.value())
                         .build());
             } else {
                 return ResponseEntity.badRequest().body(HttpResponseDTO.builder()
@@ -72,6 +80,39 @@ public class CourseController {
         }
     }
 
+    @GetMapping("{courseId}/media-status")
+    public ResponseEntity<HttpResponseDTO> getMediaStatus(
+            @PathVariable Long courseId,
+            Authentication authentication) {
+        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+        Long loggedInUserId = ((UserPrincipals) userDetails).getId();
+
+        try {
+            CourseMediaStatusDTO mediaStatus = courseService.getMediaStatus(courseId, loggedInUserId);
+            return ResponseEntity.ok(HttpResponseDTO.builder()
+                    .timestamp(now().toString())
+                    .data(Map.of("mediaStatus", mediaStatus))
+                    .message("Media status retrieved successfully")
+                    .status(HttpStatus.OK)
+                    .statusCode(HttpStatus.OK.value())
+                    .build());
+        } catch (ApiException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(HttpResponseDTO.builder()
+                    .timestamp(now().toString())
+                    .message(e.getMessage())
+                    .status(HttpStatus.FORBIDDEN)
+                    .statusCode(HttpStatus.FORBIDDEN.value())
+                    .build());
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(HttpResponseDTO.builder()
+                    .timestamp(now().toString())
+                    .message("Course not found")
+                    .status(HttpStatus.NOT_FOUND)
+                    .statusCode(HttpStatus.NOT_FOUND.value())
+                    .build());
+        }
+    }
+
     @GetMapping("{courseId}/edit")
     public ResponseEntity<HttpResponseDTO> getCourseForEdit(
             @PathVariable Long courseId,
@@ -180,18 +221,27 @@ public class CourseController {
         }
     }
 
+    // ETag z wersji kursu sprawdzany przed zapytaniem - niezmieniony kurs kończy się 304 bez budowania odpowiedzi
     @GetMapping("/get-info/{courseId}")
-    public ResponseEntity<HttpResponseDTO> getCourseData(@PathVariable Long courseId){
+    public ResponseEntity<HttpResponseDTO> getCourseData(@PathVariable Long courseId, WebRequest webRequest){
+        String eTag = resourceVersions.courseInfoTag(courseId);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
         try{
             CourseInfoDTO courseInfoDTO = courseService.getCourseData(Long.valueOf(courseId));
 
-            return ResponseEntity.ok(HttpResponseDTO.builder()
-                    .timestamp(now().toString())
-                    .message("Data of Course")
-                    .status(HttpStatus.OK)
-                    .data(of("course", courseInfoDTO))
-                    .statusCode(HttpStatus.OK.value())
-                    .build());
+            return ResponseEntity.ok()
+                    .eTag(eTag)
+                    .cacheControl(resourceVersions.catalogCacheControl(null))
+                    .body(HttpResponseDTO.builder()
+                            .timestamp(now().toString())
+                            .message("Data of Course")
+                            .status(HttpStatus.OK)
+                            .data(of("course", courseInfoDTO))
+                            .statusCode(HttpStatus.OK.value())
+                            .build());
         } catch (Exception e){
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(HttpResponseDTO.builder()
                     .timestamp(now().toString())
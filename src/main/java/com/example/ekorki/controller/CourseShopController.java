@@ -1,25 +1,42 @@
 package com.example.ekorki.controller;
 
+import com.example.ekorki.dto.courseShop.CourseCursorPageDTO;
 import com.example.ekorki.dto.courseShop.CourseShopDetailsResponseDTO;
 import com.example.ekorki.dto.courseShop.CourseShopResponseDTO;
 import com.example.ekorki.dto.http.HttpResponseDTO;
 import com.example.ekorki.entity.CourseEntity;
+import com.example.ekorki.entity.MediaEntity;
+import com.example.ekorki.model.MediaRef;
 import com.example.ekorki.model.UserPrincipals;
 import com.example.ekorki.repository.CourseRepository;
 import com.example.ekorki.service.CourseShopService;
+import com.example.ekorki.service.catalog.ResourceVersions;
+import com.example.ekorki.service.media.ImageVariant;
+import com.example.ekorki.service.media.MediaFileSender;
+import com.example.ekorki.service.media.MediaService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import static java.util.Map.of;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.NoSuchFileException;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static java.time.LocalDate.now;
 import org.springframework.security.core.Authentication;
@@ -30,6 +47,9 @@ import org.springframework.security.core.Authentication;
 public class CourseShopController {
     private final CourseShopService shopService;
     private final CourseRepository courseRepository;
+    private final MediaService mediaService;
+    private final MediaFileSender mediaFileSender;
+    private final ResourceVersions resourceVersions;
 
     @GetMapping("/get")
     public ResponseEntity<HttpResponseDTO> getCourses(
@@ -38,6 +58,10 @@ public class CourseShopController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String sortBy,
             @RequestParam(required = false) String tag,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "false") boolean facets,
             Authentication authentication) {
 
         try {
@@ -47,20 +71,61 @@ public class CourseShopController {
                 loggedInUserId = ((UserPrincipals) authentication.getPrincipal()).getId();
             }
 
-            Page<CourseShopResponseDTO> coursesPage = shopService.searchCourses(search, tag, page, size, sortBy, loggedInUserId);
+            // Tryb kursora - pusty parametr cursor oznacza pierwszą stronę
+            if (cursor != null) {
+                CourseCursorPageDTO cursorPage = shopService.searchCoursesByCursor(search, tag, size, sortBy, cursor, minPrice, maxPrice, loggedInUserId);
 
-            return ResponseEntity.ok(HttpResponseDTO.builder()
-                    .timestamp(LocalDateTime.now().toString())
-                    .data(Map.of(
-                            "courses", coursesPage.getContent(),
-                            "currentPage", coursesPage.getNumber(),
-                            "totalItems", coursesPage.getTotalElements(),
-                            "totalPages", coursesPage.getTotalPages()
-                    ))
-                    .message("Courses retrieved successfully")
-                    .status(HttpStatus.OK)
-                    .statusCode(HttpStatus.OK.value())
-                    .build());
+                Map<String, Object> data = new HashMap<>();
+                data.put("courses", cursorPage.getCourses());
+                data.put("nextCursor", cursorPage.getNextCursor());
+                data.put("hasNext", cursorPage.isHasNext());
+                if (facets) {
+                    data.put("facets", shopService.getFacets(search, tag, sortBy, minPrice, maxPrice, loggedInUserId));
+                }
+
+                return ResponseEntity.ok()
+                        .cacheControl(resourceVersions.catalogCacheControl(loggedInUserId))
+                        .varyBy(HttpHeaders.AUTHORIZATION)
+                        .body(HttpResponseDTO.builder()
+                                .timestamp(LocalDateTime.now().toString())
+                                .data(data)
+                                .message("Courses retrieved successfully")
+                                .status(HttpStatus.OK)
+                                .statusCode(HttpStatus.OK.value())
+                                .build());
+            }
+
+            Page<CourseShopResponseDTO> coursesPage = shopService.searchCourses(search, tag, page, size, sortBy, minPrice, maxPrice, loggedInUserId);
+
+            Map<String, Object> data = new HashMap<>();
+            data.put("courses", coursesPage.getContent());
+            data.put("currentPage", coursesPage.getNumber());
+            data.put("totalItems", coursesPage.getTotalElements());
+            data.put("totalPages", coursesPage.getTotalPages());
+            // Fasety liczone tylko na żądanie - jedno dodatkowe zapytanie agregujące
+            if (facets) {
+                data.put("facets", shopService.getFacets(search, tag, sortBy, minPrice, maxPrice, loggedInUserId));
+            }
+
+            // Wyniki dla zalogowanego pomijają jego kursy - wspólne cache mogą trzymać tylko wersję anonimową
+            return ResponseEntity.ok()
+                    .cacheControl(resourceVersions.catalogCacheControl(loggedInUserId))
+                    .varyBy(HttpHeaders.AUTHORIZATION)
+                    .body(HttpResponseDTO.builder()
+                            .timestamp(LocalDateTime.now().toString())
+                            .data(data)
+                            .message("Courses retrieved successfully")
+                            .status(HttpStatus.OK)
+                            .statusCode(HttpStatus.OK.value())
+                            .build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(HttpResponseDTO.builder()
+                            .timestamp(LocalDateTime.now().toString())
+                            .message(e.getMessage())
+                            .status(HttpStatus.BAD_REQUEST)
+                            .statusCode(HttpStatus.BAD_REQUEST.value())
+                            .build());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(HttpResponseDTO.builder()
@@ -74,8 +139,9 @@ public class CourseShopController {
 
     @GetMapping("/tags/search")
     public ResponseEntity<HttpResponseDTO> searchTags(
-            @RequestParam(required = false) String search) {
-        List<String> tags = shopService.searchTags(search);
+            @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "10") int limit) {
+        List<String> tags = shopService.searchTags(search, limit);
 
         return ResponseEntity.ok(HttpResponseDTO.builder()
                 .timestamp(now().toString())
@@ -92,13 +158,15 @@ public class CourseShopController {
             List<CourseShopResponseDTO> dtos = shopService.getAll();
 
 
-            return ResponseEntity.ok(HttpResponseDTO.builder()
-                    .timestamp(now().toString())
-                    .data(Map.of("courses", dtos))
-                    .message("All courses retrieved successfully")
-                    .status(HttpStatus.OK)
-                    .statusCode(HttpStatus.OK.value())
-                    .build());
+            return ResponseEntity.ok()
+                    .cacheControl(resourceVersions.catalogCacheControl(null))
+                    .body(HttpResponseDTO.builder()
+                            .timestamp(now().toString())
+                            .data(Map.of("courses", dtos))
+                            .message("All courses retrieved successfully")
+                            .status(HttpStatus.OK)
+                            .statusCode(HttpStatus.OK.value())
+                            .build());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(HttpResponseDTO.builder()
@@ -114,26 +182,37 @@ public class CourseShopController {
     @Transactional(readOnly = true)
     public ResponseEntity<HttpResponseDTO> getCourseWithDetails(
             @PathVariable Long courseId,
-            Authentication authentication) {
-        try {
-            // Obsługa ID zalogowanego użytkownika - może być null
-            Long loggedInUserId = null;
-            if (authentication != null && authentication.getPrincipal() instanceof UserPrincipals) {
-                loggedInUserId = ((UserPrincipals) authentication.getPrincipal()).getId();
-            }
+            Authentication authentication,
+            WebRequest webRequest) {
+        // Obsługa ID zalogowanego użytkownika - może być null
+        Long loggedInUserId = null;
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipals) {
+            loggedInUserId = ((UserPrincipals) authentication.getPrincipal()).getId();
+        }
+
+        // Wersja sprawdzana przed wczytaniem kursu - aktualna kopia klienta kończy się 304 po jednym zapytaniu o wersje
+        String eTag = resourceVersions.courseDetailsTag(courseId, loggedInUserId);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
 
+        try {
             CourseEntity course = courseRepository.findByIdForDetails(courseId)
                     .orElseThrow(() -> new EntityNotFoundException("Course not found"));
 
             CourseShopDetailsResponseDTO courseDetails = shopService.getCourseWithDetails(course, loggedInUserId);
 
-            return ResponseEntity.ok(HttpResponseDTO.builder()
-                    .timestamp(now().toString())
-                    .data(Map.of("courseDetails", courseDetails))
-                    .message("Course details retrieved successfully")
-                    .status(HttpStatus.OK)
-                    .statusCode(HttpStatus.OK.value())
-                    .build());
+            return ResponseEntity.ok()
+                    .eTag(eTag)
+                    .cacheControl(resourceVersions.catalogCacheControl(loggedInUserId))
+                    .varyBy(HttpHeaders.AUTHORIZATION)
+                    .body(HttpResponseDTO.builder()
+                            .timestamp(now().toString())
+                            .data(Map.of("courseDetails", courseDetails))
+                            .message("Course details retrieved successfully")
+                            .status(HttpStatus.OK)
+                            .statusCode(HttpStatus.OK.value())
+                            .build());
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(HttpResponseDTO.builder()
@@ -153,6 +232,47 @@ public class CourseShopController {
         }
     }
 
+    // Baner serwowany osobno - listy kursów zwracają tylko bannerUrl
+    @GetMapping("/banner/{courseId}")
+    public ResponseEntity<HttpResponseDTO> getCourseBanner(
+            @PathVariable Long courseId,
+            @RequestParam(required = false) String v,
+            @RequestParam(required = false) String variant,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        try {
+            MediaRef banner = shopService.getCourseBanner(courseId);
+            MediaEntity media = mediaService.getVariant(mediaService.getMedia(banner.mediaId()),
+                    variant != null ? ImageVariant.fromKey(variant) : null);
+
+            // Adres z bieżącą wersją zmienia się wraz z plikiem banera, więc można go cache'ować bez rewalidacji;
+            // nieaktualne lub zgadnięte v dostaje bieżący plik, ale tylko z rewalidacją
+            CacheControl cacheControl = String.valueOf(banner.mediaId()).equals(v)
+                    ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                    : CacheControl.noCache();
+
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+            mediaFileSender.send(request, response, media.getSha256(), banner.mimeType());
+            return null;
+        } catch (EntityNotFoundException | NoSuchFileException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(HttpResponseDTO.builder()
+                            .timestamp(now().toString())
+                            .message("Course banner not found")
+                            .status(HttpStatus.NOT_FOUND)
+                            .statusCode(HttpStatus.NOT_FOUND.value())
+                            .build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(HttpResponseDTO.builder()
+                            .timestamp(now().toString())
+                            .message("Unknown image variant: " + variant)
+                            .status(HttpStatus.BAD_REQUEST)
+                            .statusCode(HttpStatus.BAD_REQUEST.value())
+                            .build());
+        }
+    }
+
     @GetMapping("/get-best")
     public ResponseEntity<HttpResponseDTO> getBestCourses(Authentication authentication) {
         try {
@@ -0,0 +1,100 @@
+package com.example.ekorki.controller;
+
+import com.example.ekorki.dto.http.HttpResponseDTO;
+import com.example.ekorki.entity.MediaEntity;
+import com.example.ekorki.model.MediaRef;
+import com.example.ekorki.model.UserPrincipals;
+import com.example.ekorki.service.media.ImageVariant;
+import com.example.ekorki.service.media.MediaAccessService;
+import com.example.ekorki.service.media.MediaFileSender;
+import com.example.ekorki.service.media.MediaService;
+import com.example.ekorki.service.media.MediaUrlSigner;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.time.Instant;
+import java.util.Optional;
+
+import static java.time.LocalDateTime.now;
+
+@RestController
+@RequestMapping(path = "/media")
+@RequiredArgsConstructor
+public class MediaController {
+    private final MediaService mediaService;
+    private final MediaAccessService mediaAccessService;
+    private final MediaFileSender mediaFileSender;
+    private final MediaUrlSigner mediaUrlSigner;
+
+    // Plik wysyłany z dysku przez sendfile z obsługą Range (206 / 416) - odtwarzacz może przewijać
+    // wideo bez pobierania całego pliku. Po wysłaniu zwracamy null, bo odpowiedź jest już obsłużona.
+    @GetMapping("/{mediaId}")
+    public ResponseEntity<HttpResponseDTO> getMedia(
+            @PathVariable Long mediaId,
+            @RequestParam(required = false) String variant,
+            Authentication authentication,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Long loggedInUserId = null;
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipals) {
+            loggedInUserId = ((UserPrincipals) authentication.getPrincipal()).getId();
+        }
+
+        try {
+            Optional<MediaRef> media = mediaAccessService.findAccessible(mediaId, loggedInUserId);
+            if (media.isEmpty()) {
+                return error(HttpStatus.FORBIDDEN, "You don't have access to this file");
+            }
+
+            MediaEntity entity = mediaService.getVariant(mediaService.getMedia(mediaId),
+                    variant != null ? ImageVariant.fromKey(variant) : null);
+            mediaFileSender.send(request, response, entity.getSha256(), media.get().mimeType());
+            return null;
+        } catch (EntityNotFoundException | NoSuchFileException e) {
+            return error(HttpStatus.NOT_FOUND, "File not found");
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, "Unknown image variant: " + variant);
+        }
+    }
+
+    // Adres wydany przez getSubchapterDetails - sprawdzany sam podpis, bez JWT i bez bazy.
+    // Treść pod skrótem nigdy się nie zmienia, więc odpowiedź może trzymać CDN do końca ważności adresu.
+    @GetMapping("/signed/{token}")
+    public ResponseEntity<HttpResponseDTO> getSignedMedia(
+            @PathVariable String token,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Optional<MediaUrlSigner.SignedMedia> media = mediaUrlSigner.verify(token);
+        if (media.isEmpty()) {
+            return error(HttpStatus.FORBIDDEN, "Invalid or expired media link");
+        }
+
+        try {
+            long maxAge = media.get().expiresAt() - Instant.now().getEpochSecond();
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + maxAge + ", immutable");
+            mediaFileSender.send(request, response, media.get().sha256(), media.get().mimeType());
+            return null;
+        } catch (NoSuchFileException e) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+            return error(HttpStatus.NOT_FOUND, "File not found");
+        }
+    }
+
+    private ResponseEntity<HttpResponseDTO> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(HttpResponseDTO.builder()
+                .timestamp(now().toString())
+                .message(message)
+                .status(status)
+                .statusCode(status.value())
+                .build());
+    }
+}
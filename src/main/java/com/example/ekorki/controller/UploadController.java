@@ -0,0 +1,77 @@
+package com.example.ekorki.controller;
+
+import com.example.ekorki.dto.http.HttpResponseDTO;
+import com.example.ekorki.dto.upload.UploadSessionCreateDTO;
+import com.example.ekorki.dto.upload.UploadSessionDTO;
+import com.example.ekorki.model.UserPrincipals;
+import com.example.ekorki.service.media.UploadSessionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static java.time.LocalDateTime.now;
+
+// Sesje wysyłania plików w kawałkach; błędy (400 / 404) obsługuje GlobalExceptionHandler
+@RestController
+@RequestMapping(path = "/upload/sessions")
+@RequiredArgsConstructor
+public class UploadController {
+    private final UploadSessionService uploadSessionService;
+
+    @PostMapping
+    public ResponseEntity<HttpResponseDTO> createSession(
+            @Valid @RequestBody UploadSessionCreateDTO createDTO,
+            Authentication authentication) {
+        UploadSessionDTO session = uploadSessionService.create(createDTO, userId(authentication));
+        return respond(HttpStatus.CREATED, "Upload session created", session);
+    }
+
+    @GetMapping("/{sessionId}")
+    public ResponseEntity<HttpResponseDTO> getSession(
+            @PathVariable String sessionId,
+            Authentication authentication) throws IOException {
+        UploadSessionDTO session = uploadSessionService.get(sessionId, userId(authentication));
+        return respond(HttpStatus.OK, "Upload session retrieved successfully", session);
+    }
+
+    // Ciało żądania to surowe bajty kawałka - czytane strumieniem prosto na dysk
+    @PutMapping(value = "/{sessionId}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<HttpResponseDTO> uploadChunk(
+            @PathVariable String sessionId,
+            @PathVariable int index,
+            Authentication authentication,
+            HttpServletRequest request) throws IOException {
+        uploadSessionService.writeChunk(sessionId, userId(authentication), index, request.getInputStream());
+        return respond(HttpStatus.OK, "Chunk " + index + " uploaded", null);
+    }
+
+    @PostMapping("/{sessionId}/complete")
+    public ResponseEntity<HttpResponseDTO> completeSession(
+            @PathVariable String sessionId,
+            Authentication authentication) throws IOException {
+        UploadSessionDTO session = uploadSessionService.complete(sessionId, userId(authentication));
+        return respond(HttpStatus.OK, "Upload completed", session);
+    }
+
+    private Long userId(Authentication authentication) {
+        return ((UserPrincipals) authentication.getPrincipal()).getId();
+    }
+
+    private ResponseEntity<HttpResponseDTO> respond(HttpStatus status, String message, UploadSessionDTO session) {
+        return ResponseEntity.status(status).body(HttpResponseDTO.builder()
+                .timestamp(now().toString())
+                .data(session != null ? Map.of("session", session) : null)
+                .message(message)
+                .status(status)
+                .statusCode(status.value())
+                .build());
+    }
+}
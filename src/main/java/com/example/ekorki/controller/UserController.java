@@ -3,6 +3,7 @@ package com.example.ekorki.controller;
 import com.example.ekorki.dto.user.*;
 import com.example.ekorki.dto.http.HttpResponseDTO;
 import com.example.ekorki.exception.ApiException;
+import com.example.ekorki.exception.TooManyRequestsException;
 import com.example.ekorki.model.UserPrincipals;
 import com.example.ekorki.service.EmailVerificationService;
 import com.example.ekorki.service.entity.RefreshTokenService;
@@ -313,6 +314,8 @@ public class UserController {
                         .statusCode(HttpStatus.BAD_REQUEST.value())
                         .build());
             }
+        } catch (TooManyRequestsException e) {
+            throw e;
         } catch (AccessDeniedException e) {
             logger.warn("Access Denied "+e.getMessage());
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(HttpResponseDTO.builder()
@@ -5,6 +5,7 @@ import com.example.ekorki.dto.http.HttpResponseDTO;
 import com.example.ekorki.dto.userProfile.UserProfileResponseDTO;
 import com.example.ekorki.dto.userProfile.UserProfileUpdateDTO;
 import com.example.ekorki.model.UserPrincipals;
+import com.example.ekorki.service.catalog.ResourceVersions;
 import com.example.ekorki.service.entity.TeacherProfileService;
 import com.example.ekorki.service.entity.UserProfileService;
 import jakarta.persistence.EntityNotFoundException;
@@ -14,6 +15,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
@@ -28,6 +30,7 @@ import static java.time.LocalDateTime.now;
 public class UserProfileController {
     private final UserProfileService userProfileService;
     private final TeacherProfileService teacherProfileService;
+    private final ResourceVersions resourceVersions;
 
     @PutMapping("/update")
     public ResponseEntity<HttpResponseDTO> updateUserProfile(
@@ -105,18 +108,27 @@ public class UserProfileController {
         }
     }
 
+    // Profil jest taki sam dla wszystkich odwiedzających - ETag z wersji profilu i publiczny Cache-Control
     @GetMapping("/get/{userId}")
-    public ResponseEntity<HttpResponseDTO> getUserProfile(@PathVariable Long userId) {
+    public ResponseEntity<HttpResponseDTO> getUserProfile(@PathVariable Long userId, WebRequest webRequest) {
+        String eTag = resourceVersions.profileTag(userId);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
         try {
             UserProfileResponseDTO profileDTO = userProfileService.getUserProfile(userId);
 
-            return ResponseEntity.ok(HttpResponseDTO.builder()
-                    .timestamp(now().toString())
-                    .data(Map.of("profile", profileDTO))
-                    .message("Profile retrieved successfully")
-                    .status(HttpStatus.OK)
-                    .statusCode(HttpStatus.OK.value())
-                    .build());
+            return ResponseEntity.ok()
+                    .eTag(eTag)
+                    .cacheControl(resourceVersions.catalogCacheControl(null))
+                    .body(HttpResponseDTO.builder()
+                            .timestamp(now().toString())
+                            .data(Map.of("profile", profileDTO))
+                            .message("Profile retrieved successfully")
+                            .status(HttpStatus.OK)
+                            .statusCode(HttpStatus.OK.value())
+                            .build());
 
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
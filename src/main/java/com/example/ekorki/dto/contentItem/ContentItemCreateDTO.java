@@ -26,6 +26,9 @@ public class ContentItemCreateDTO {
 
     private Object quizContent;
 
+    // Plik wysłany wcześniej w sesji /upload - zamiast kolejnej części contentFiles
+    private Long mediaId;
+
 
 
 
@@ -1,12 +1,12 @@
 package com.example.ekorki.dto.contentItem;
 
+import com.example.ekorki.dto.media.MediaReferenceDTO;
+import com.example.ekorki.model.MediaStatus;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.util.Map;
-
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -22,6 +22,8 @@ public class ContentItemResponseDTO {
     public String textColor;
     public String italics;
     public String underline;
-    private Map<String, Object> file;
+    private MediaReferenceDTO file;
+    // PENDING - plik jeszcze przetwarzany, FAILED - do ponownego wysłania
+    private MediaStatus mediaStatus;
     public Object quizContent;
 }
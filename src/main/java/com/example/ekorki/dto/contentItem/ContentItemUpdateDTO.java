@@ -1,11 +1,11 @@
 package com.example.ekorki.dto.contentItem;
 
+import com.example.ekorki.dto.media.MediaReferenceDTO;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.util.Map;
 import java.util.Optional;
 @Data
 @NoArgsConstructor
@@ -27,7 +27,11 @@ public class ContentItemUpdateDTO {
     // Pole dla typu 'quiz'
     private Optional<Object> quizContent;
 
-    private Optional<Map<String, Object>> file;
+    // Odwołanie do pliku elementu (tylko w odpowiedzi)
+    private Optional<MediaReferenceDTO> file;
+
+    // Nowy plik wysłany w sesji /upload - zastępuje updateFile z częścią contentFiles
+    private Optional<Long> mediaId;
 
     // Pole wskazujące, czy element ma zostać usunięty
     private Optional<Boolean> deleted;
@@ -0,0 +1,23 @@
+package com.example.ekorki.dto.course;
+
+import com.example.ekorki.model.ContentMediaStatus;
+import com.example.ekorki.model.MediaStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Odpytywane po 202 z /course/create - kurs jest gotowy, gdy pending spadnie do zera
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CourseMediaStatusDTO {
+    private Long courseId;
+    private MediaStatus bannerStatus;
+    private long pending;
+    private long failed;
+    private List<ContentMediaStatus> contentItems;
+}
@@ -8,7 +8,6 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 @Data
@@ -18,7 +17,7 @@ import java.util.Optional;
 public class CourseUpdateDTO {
     private Long id;
     private Optional<String> name;
-    private Optional<Map<String, Object>> banner;
+    private Optional<String> bannerUrl;
     private Optional<BigDecimal> price;
     private Optional<BigDecimal> duration;
     private Optional<List<String>> tags;
@@ -0,0 +1,18 @@
+package com.example.ekorki.dto.courseShop;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CourseCursorPageDTO {
+    private List<CourseShopResponseDTO> courses;
+    private String nextCursor;
+    private boolean hasNext;
+}
@@ -0,0 +1,20 @@
+package com.example.ekorki.dto.courseShop;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CourseFacetsDTO {
+    // Tag -> liczba kursów, od najpopularniejszego
+    private Map<String, Long> tags;
+    private List<FacetBucketDTO> priceRanges;
+    private List<FacetBucketDTO> ratings;
+}
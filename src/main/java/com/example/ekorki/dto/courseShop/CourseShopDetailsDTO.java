@@ -9,7 +9,6 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 
 @Data
 @NoArgsConstructor
@@ -18,7 +17,7 @@ import java.util.Map;
 public class CourseShopDetailsDTO {
     private Long id;
     private String name;
-    private Map<String, Object> banner;
+    private String bannerUrl;
     private BigDecimal price;
     private BigDecimal duration;
     private List<String> tags;
@@ -0,0 +1,19 @@
+package com.example.ekorki.dto.courseShop;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Przedział [from, to) z liczbą kursów; brak to oznacza przedział otwarty z góry
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FacetBucketDTO {
+    private BigDecimal from;
+    private BigDecimal to;
+    private long count;
+}
@@ -19,7 +19,8 @@ public class OwnerDataDTO {
     private Long userId;
     private String description;
     private Date createdAt;
-    private Map<String, Object> picture;
+    // Miniatura zdjęcia profilowego - karta kursu nie potrzebuje pełnego obrazu
+    private String pictureUrl;
     private Boolean badgesVisible;
     private Set<String> roles;
 }
@@ -0,0 +1,18 @@
+package com.example.ekorki.dto.media;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Odwołanie do pliku zamiast jego bajtów - klient pobiera plik z url, także fragmentami (Range)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MediaReferenceDTO {
+    private Long id;
+    private String url;
+    private String mimeType;
+    private Long size;
+}
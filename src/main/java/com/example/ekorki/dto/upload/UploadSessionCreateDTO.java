@@ -0,0 +1,15 @@
+package com.example.ekorki.dto.upload;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+
+public record UploadSessionCreateDTO(
+        @NotNull(message = "File size cannot be null")
+        @Positive(message = "File size must be positive")
+        Long totalSize,
+        @NotBlank(message = "Checksum cannot be blank")
+        @Pattern(regexp = "[0-9a-fA-F]{64}", message = "Checksum must be a hex encoded SHA-256")
+        String sha256) {
+}
@@ -0,0 +1,27 @@
+package com.example.ekorki.dto.upload;
+
+import com.example.ekorki.dto.media.MediaReferenceDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Stan sesji - klient po przerwie wysyła tylko kawałki spoza receivedChunks
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadSessionDTO {
+    private String id;
+    private String status;
+    private Long totalSize;
+    private Integer chunkSize;
+    private Integer chunkCount;
+    private List<Integer> receivedChunks;
+    private LocalDateTime expiresAt;
+    // Uzupełnione po zakończeniu sesji - id przekazywane w ContentItemCreateDTO.mediaId
+    private MediaReferenceDTO media;
+}
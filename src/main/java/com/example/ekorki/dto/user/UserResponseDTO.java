@@ -4,7 +4,6 @@ import lombok.Data;
 
 import java.util.Date;
 import java.util.Set;
-import java.util.Map;
 
 @Data
 public class UserResponseDTO {
@@ -15,7 +14,8 @@ public class UserResponseDTO {
     private String email;
     private int points;
     private Set<String> roles;
-    private Map<String, Object> picture;
+    // Adres zdjęcia profilowego (wariant card) zamiast bajtów
+    private String pictureUrl;
     private String[] badges;
     private Boolean badgesVisible;
     private String description;
@@ -8,7 +8,6 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.util.Date;
-import java.util.Map;
 import java.util.Set;
 
 @Data
@@ -20,7 +19,8 @@ public class UserProfileResponseDTO {
     private String fullName;
     private String description;
     private Date createdAt;
-    private Map<String, Object> picture;
+    // Adres zdjęcia zamiast bajtów - miniatura w listach (np. recenzji), wariant card na stronie profilu
+    private String pictureUrl;
     private Boolean badgesVisible;
     private Set<String> roles;
     private BigDecimal review;
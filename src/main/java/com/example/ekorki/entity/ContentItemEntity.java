@@ -1,16 +1,15 @@
 package com.example.ekorki.entity;
 
+import com.example.ekorki.model.MediaStatus;
 import io.hypersistence.utils.hibernate.type.json.JsonBinaryType;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
-import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.Type;
 
-import java.sql.Types;
-
 @Entity
 @Table(schema = "e_korki", name = "content_items")
 @Data
@@ -50,13 +49,22 @@ public class ContentItemEntity {
     @Column
     private Boolean underline;
 
-    @Lob
-    @JdbcTypeCode(Types.BINARY)
-    private byte[] file;
+    // Wideo lub obraz w magazynie mediów
+    @Column(name = "file_media_id")
+    private Long fileMediaId;
+
+    @Column(name = "file_size")
+    private Long fileSize;
 
     @Column(name = "mime_type")
     private String mimeType;
 
+    // Plik z formularza kursu przetwarzany jest w tle - do tego czasu fileMediaId jest pusty
+    @Enumerated(EnumType.STRING)
+    @Column(name = "media_status", nullable = false, length = 16)
+    @Builder.Default
+    private MediaStatus mediaStatus = MediaStatus.READY;
+
     @Type(JsonBinaryType.class)
     @Column(name = "quiz_data", columnDefinition = "jsonb")
     private String quizContent;
@@ -1,5 +1,6 @@
 package com.example.ekorki.entity;
 
+import com.example.ekorki.model.MediaStatus;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -9,7 +10,6 @@ import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
 import java.math.BigDecimal;
-import java.sql.Types;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -26,13 +26,26 @@ public class CourseEntity {
 
     private String name;
 
-    @Lob
-    @JdbcTypeCode(Types.BINARY)
-    private byte[] banner;
+    // Baner w magazynie mediów
+    @Column(name = "banner_media_id")
+    private Long bannerMediaId;
+
+    @Column(name = "banner_size")
+    private Long bannerSize;
 
     @Column(name = "mime_type")
     private String mimeType;
 
+    // Nowy baner przetwarzany w tle - do tego czasu widoczny jest poprzedni
+    @Enumerated(EnumType.STRING)
+    @Column(name = "banner_status", nullable = false, length = 16)
+    @Builder.Default
+    private MediaStatus bannerStatus = MediaStatus.READY;
+
+    // Token ostatnio zleconego przetwarzania banera - tylko to zadanie może go zakończyć
+    @Column(name = "banner_job", length = 36)
+    private String bannerJob;
+
     @Column(precision = 2, scale = 1)
     private BigDecimal review;
 
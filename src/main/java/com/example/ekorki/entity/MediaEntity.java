@@ -0,0 +1,31 @@
+package com.example.ekorki.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Plik w magazynie mediów - identyfikowany skrótem SHA-256 treści, więc te same bajty zapisujemy raz
+@Entity
+@Table(schema = "e_korki", name = "media")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MediaEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String sha256;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
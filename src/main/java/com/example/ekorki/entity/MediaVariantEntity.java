@@ -0,0 +1,35 @@
+package com.example.ekorki.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Pomniejszona wersja obrazu - sam plik wariantu też leży w magazynie mediów
+@Entity
+@Table(schema = "e_korki", name = "media_variants")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MediaVariantEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "media_id", nullable = false)
+    private Long mediaId;
+
+    @Column(nullable = false, length = 16)
+    private String variant;
+
+    @Column(name = "variant_media_id", nullable = false)
+    private Long variantMediaId;
+
+    @Column(nullable = false)
+    private Integer width;
+
+    @Column(nullable = false)
+    private Integer height;
+}
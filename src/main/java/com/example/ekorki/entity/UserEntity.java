@@ -10,6 +10,7 @@ import lombok.*;
 import lombok.experimental.SuperBuilder;
 
 
+import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -44,6 +45,13 @@ public class UserEntity {
     @Column(nullable = false)
     private boolean blocked = false;
 
+    // Podbijana przy zmianie ról lub adresu - tokeny dostępu ze starszą wersją przestają działać
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
+
+    @Column(name = "token_version_changed_at")
+    private LocalDateTime tokenVersionChangedAt;
+
 //    public enum Role implements GrantedAuthority{
 //        USER, VERIFIED, TEACHER, ADMIN;
 //
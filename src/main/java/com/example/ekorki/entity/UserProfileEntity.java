@@ -7,9 +7,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
-import org.hibernate.annotations.JdbcTypeCode;
 
-import java.sql.Types;
 import java.util.Date;
 
 import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_DEFAULT;
@@ -40,9 +38,12 @@ public class UserProfileEntity {
     @Column(name = "created_at", nullable = false)
     private Date createdAt;
 
-    @Lob
-    @JdbcTypeCode(Types.BINARY)
-    private byte[] picture;
+    // Zdjęcie profilowe w magazynie mediów
+    @Column(name = "picture_media_id")
+    private Long pictureMediaId;
+
+    @Column(name = "picture_size")
+    private Long pictureSize;
 
     @Column(name = "mime_type")
     private String pictureMimeType;
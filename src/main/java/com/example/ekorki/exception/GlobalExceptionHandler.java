@@ -32,6 +32,13 @@ public class GlobalExceptionHandler {
         return buildResponse(HttpStatus.BAD_REQUEST, ex.getMessage(), null);
     }
 
+    // Podklasa ApiException - ma pierwszeństwo przed ogólnym 400
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<HttpResponseDTO> handleTooManyRequests(TooManyRequestsException ex) {
+        logger.warn("Request rejected: {}", ex.getMessage());
+        return buildResponse(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage(), null);
+    }
+
     @ExceptionHandler(EntityNotFoundException.class)
     public ResponseEntity<HttpResponseDTO> handleEntityNotFound(EntityNotFoundException ex) {
         logger.error("Entity not found: {}", ex.getMessage(), ex);
@@ -0,0 +1,8 @@
+package com.example.ekorki.exception;
+
+// Chwilowe przeciążenie (np. pełna kolejka haszowania haseł) - klient może ponowić żądanie za moment
+public class TooManyRequestsException extends ApiException {
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.ekorki.model;
+
+import java.util.List;
+
+// Claimy zweryfikowanego tokenu dostępu - odczytane raz, bez ponownego parsowania w filtrze
+public record AccessTokenClaims(Long userId, String email, List<String> roles, int version, long expiresAt) {
+}
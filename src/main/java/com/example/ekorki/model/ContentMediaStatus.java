@@ -0,0 +1,5 @@
+package com.example.ekorki.model;
+
+// Stan przetwarzania pliku jednego elementu treści kursu
+public record ContentMediaStatus(Long id, String type, MediaStatus status) {
+}
@@ -0,0 +1,29 @@
+package com.example.ekorki.model;
+
+import com.example.ekorki.service.media.ImageVariant;
+import com.example.ekorki.service.media.MediaService;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Karta kursu dla list sklepu - bez bajtów banera, który jest serwowany osobnym endpointem w wariancie card
+public record CourseCard(
+        Long id,
+        String name,
+        BigDecimal price,
+        BigDecimal duration,
+        List<String> tags,
+        BigDecimal review,
+        Integer reviewNumber,
+        String description,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        Long chaptersCount,
+        Long ownerId,
+        Long bannerMediaId
+) {
+    public String bannerUrl() {
+        return MediaService.bannerUrl(id, bannerMediaId, ImageVariant.CARD);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.ekorki.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Lekki wiersz kursu (bez banera i opisu) do budowy indeksu katalogu w pamięci
+public record CourseCatalogRow(
+        Long id,
+        String name,
+        BigDecimal review,
+        Integer reviewNumber,
+        LocalDateTime createdAt,
+        BigDecimal price,
+        Long ownerId,
+        List<String> tags
+) {
+}
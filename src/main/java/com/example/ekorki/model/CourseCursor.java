@@ -0,0 +1,83 @@
+package com.example.ekorki.model;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Pozycja (klucz sortowania, id) ostatniego kursu na stronie - przekazywana klientowi jako nieprzezroczysty token
+public record CourseCursor(String sortBy, String key, long id) {
+    private static final String SEPARATOR = "|";
+
+    // Kurs bez daty sortuje się jak 'infinity' w SQL (sterownik mapuje LocalDateTime.MAX na infinity),
+    // czyli przed wszystkimi datowanymi - tak samo jak w indeksie katalogu w pamięci
+    public static final LocalDateTime UNDATED = LocalDateTime.MAX;
+
+    // Wartości startowe nie mniejsze od każdego klucza w bazie - pierwsza strona zaczyna się "przed" wszystkimi kursami
+    private static final LocalDateTime FIRST_DATE = UNDATED;
+    private static final BigDecimal FIRST_REVIEW = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    public static CourseCursor first(String sortBy) {
+        return switch (sortBy) {
+            case "review" -> new CourseCursor(sortBy, FIRST_REVIEW.toPlainString(), Long.MAX_VALUE);
+            case "reviewNumber" -> new CourseCursor(sortBy, String.valueOf(Integer.MAX_VALUE), Long.MAX_VALUE);
+            default -> new CourseCursor(sortBy, FIRST_DATE.toString(), Long.MAX_VALUE);
+        };
+    }
+
+    public static CourseCursor after(String sortBy, CourseCard course) {
+        String key = switch (sortBy) {
+            case "review" -> (course.review() != null ? course.review() : BigDecimal.ZERO).toPlainString();
+            case "reviewNumber" -> String.valueOf(course.reviewNumber() != null ? course.reviewNumber() : 0);
+            default -> (course.createdAt() != null ? course.createdAt() : UNDATED).toString();
+        };
+        return new CourseCursor(sortBy, key, course.id());
+    }
+
+    public static CourseCursor decode(String token, String sortBy) {
+        if (token == null || token.isBlank()) {
+            return first(sortBy);
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, 3);
+            if (parts.length != 3 || !parts[0].equals(sortBy)) {
+                throw new IllegalArgumentException("Cursor does not match the requested sort order");
+            }
+
+            CourseCursor cursor = new CourseCursor(parts[0], parts[1], Long.parseLong(parts[2]));
+            // Walidacja klucza przed użyciem w zapytaniu
+            cursor.sortKey();
+            return cursor;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public String encode() {
+        String raw = sortBy + SEPARATOR + key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Klucz w typie kolumny, po której sortujemy
+    public Object sortKey() {
+        return switch (sortBy) {
+            case "review" -> reviewKey();
+            case "reviewNumber" -> reviewNumberKey();
+            default -> dateKey();
+        };
+    }
+
+    public LocalDateTime dateKey() {
+        return LocalDateTime.parse(key);
+    }
+
+    public BigDecimal reviewKey() {
+        return new BigDecimal(key);
+    }
+
+    public int reviewNumberKey() {
+        return Integer.parseInt(key);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.ekorki.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Filtr wyszukiwania kursów - puste pola oznaczają brak danego warunku
+@Data
+@Builder(toBuilder = true)
+public class CourseSearchFilter {
+    private String search;
+    private List<String> tags;
+    private Long excludeOwnedBy;
+    private Long excludePurchasedBy;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+
+    // Te same warunki bez wykluczeń zależnych od użytkownika
+    public CourseSearchFilter withoutUser() {
+        return toBuilder()
+                .excludeOwnedBy(null)
+                .excludePurchasedBy(null)
+                .build();
+    }
+
+    public boolean hasSearch() {
+        return search != null && !search.isBlank();
+    }
+
+    public boolean hasTags() {
+        return tags != null && !tags.isEmpty();
+    }
+
+    // Które warunki są aktywne - zapytania o tym samym kształcie mają identyczny SQL
+    public String shape() {
+        return (hasSearch() ? "s" : "-")
+                + (hasTags() ? "t" + tags.size() : "-")
+                + (excludeOwnedBy != null ? "o" : "-")
+                + (excludePurchasedBy != null ? "p" : "-")
+                + (minPrice != null ? "l" : "-")
+                + (maxPrice != null ? "h" : "-");
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.ekorki.model;
+
+// Odwołanie do pliku w magazynie mediów wraz z typem MIME zapisanym przy właścicielu pliku
+public record MediaRef(Long mediaId, Long size, String mimeType) {
+}
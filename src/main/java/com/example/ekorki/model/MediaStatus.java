@@ -0,0 +1,6 @@
+package com.example.ekorki.model;
+
+// Stan pliku przetwarzanego w tle - PENDING od zapisania kursu do zakończenia przetwarzania
+public enum MediaStatus {
+    PENDING, READY, FAILED
+}
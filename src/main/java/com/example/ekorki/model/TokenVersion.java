@@ -0,0 +1,5 @@
+package com.example.ekorki.model;
+
+// Aktualna wersja tokenów dostępu użytkownika
+public record TokenVersion(Long userId, int version) {
+}
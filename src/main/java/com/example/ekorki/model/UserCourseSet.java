@@ -0,0 +1,30 @@
+package com.example.ekorki.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+// Zwarty, posortowany zbiór id kursów użytkownika (własnych i kupionych) - 8 bajtów na kurs zamiast obiektów Long
+public record UserCourseSet(long[] courseIds) {
+    public static final UserCourseSet EMPTY = new UserCourseSet(new long[0]);
+
+    public static UserCourseSet of(Collection<Long> ids) {
+        long[] sorted = ids.stream()
+                .mapToLong(Long::longValue)
+                .distinct()
+                .sorted()
+                .toArray();
+        return new UserCourseSet(sorted);
+    }
+
+    public boolean contains(long courseId) {
+        return Arrays.binarySearch(courseIds, courseId) >= 0;
+    }
+
+    public boolean isEmpty() {
+        return courseIds.length == 0;
+    }
+
+    public int size() {
+        return courseIds.length;
+    }
+}
@@ -6,29 +6,46 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
-import java.util.stream.Collectors;
+import java.util.List;
 
 public class UserPrincipals implements UserDetails {
-    private final UserEntity userEntity;
+    private final Long id;
+    private final String email;
+    private final String password;
+    private final List<GrantedAuthority> authorities;
+
     public UserPrincipals(UserEntity userEntity) {
-        this.userEntity = userEntity;
+        this(userEntity.getId(), userEntity.getEmail(), userEntity.getPassword(),
+                userEntity.getRoles().stream().map(role -> role.getRole().name()).toList());
+    }
+
+    // Z claimów tokenu dostępu - bez hasła i bez zapytania do bazy
+    public UserPrincipals(Long id, String email, Collection<String> roles) {
+        this(id, email, null, roles);
+    }
+
+    private UserPrincipals(Long id, String email, String password, Collection<String> roles) {
+        this.id = id;
+        this.email = email;
+        this.password = password;
+        this.authorities = roles.stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role))
+                .toList();
     }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return userEntity.getRoles().stream()
-                .map(role -> new SimpleGrantedAuthority(role.getRole().name()))
-                .collect(Collectors.toList());
+        return authorities;
     }
 
     @Override
     public String getPassword() {
-        return userEntity.getPassword();
+        return password;
     }
 
     @Override
     public String getUsername() {
-        return userEntity.getEmail();
+        return email;
     }
 
     @Override
@@ -60,6 +77,6 @@ public class UserPrincipals implements UserDetails {
     }
 
     public Long getId(){
-        return userEntity.getId();
+        return id;
     }
 }
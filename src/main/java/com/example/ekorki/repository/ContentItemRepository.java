@@ -1,8 +1,14 @@
 package com.example.ekorki.repository;
 
 import com.example.ekorki.entity.ContentItemEntity;
+import com.example.ekorki.model.ContentMediaStatus;
+import com.example.ekorki.model.MediaStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -10,7 +16,40 @@ import java.util.List;
 public interface ContentItemRepository extends JpaRepository<ContentItemEntity, Long> {
     List<ContentItemEntity> findBySubchapterIdOrderByOrderAsc(Long subchapterId);
 
+    // Typy MIME pliku w kursach, które użytkownik prowadzi lub kupił - pusta lista oznacza brak dostępu
+    @Query("""
+        SELECT ci.mimeType FROM ContentItemEntity ci
+        JOIN ci.subchapter s JOIN s.chapter ch JOIN ch.course c
+        WHERE ci.fileMediaId = :mediaId
+        AND (c.user.id = :userId OR EXISTS (
+            SELECT pc.id FROM PurchasedCourseEntity pc WHERE pc.course = c AND pc.user.id = :userId))
+    """)
+    List<String> findAccessibleFileMimeTypes(@Param("mediaId") Long mediaId, @Param("userId") Long userId);
 
+    // Wynik przetwarzania w tle zapisywany krótką transakcją na jeden wiersz
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE ContentItemEntity ci
+        SET ci.fileMediaId = :mediaId, ci.fileSize = :size, ci.mimeType = :mimeType, ci.mediaStatus = :status
+        WHERE ci.id = :id
+    """)
+    int completeFile(@Param("id") Long id,
+                     @Param("mediaId") Long mediaId,
+                     @Param("size") Long size,
+                     @Param("mimeType") String mimeType,
+                     @Param("status") MediaStatus status);
 
+    @Modifying
+    @Transactional
+    @Query("UPDATE ContentItemEntity ci SET ci.mediaStatus = :status WHERE ci.id = :id")
+    int updateMediaStatus(@Param("id") Long id, @Param("status") MediaStatus status);
 
+    @Query("""
+        SELECT new com.example.ekorki.model.ContentMediaStatus(ci.id, ci.type, ci.mediaStatus)
+        FROM ContentItemEntity ci JOIN ci.subchapter s JOIN s.chapter ch
+        WHERE ch.course.id = :courseId AND ci.type IN ('image', 'video')
+        ORDER BY ci.id
+    """)
+    List<ContentMediaStatus> findMediaStatusesByCourseId(@Param("courseId") Long courseId);
 }
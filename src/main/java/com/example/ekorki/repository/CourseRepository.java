@@ -1,11 +1,18 @@
 package com.example.ekorki.repository;
 
 import com.example.ekorki.entity.CourseEntity;
+import com.example.ekorki.model.CourseCard;
+import com.example.ekorki.model.CourseCatalogRow;
+import com.example.ekorki.model.MediaRef;
+import com.example.ekorki.model.MediaStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,374 +22,87 @@ public interface CourseRepository extends JpaRepository<CourseEntity, Long> {
 
     Optional<CourseEntity> findByUserIdAndId(Long userId, Long courseId);
 
-    // Base q
-    String BASE_SORT_QUERY = """
-        ORDER BY 
-        CASE 
-            WHEN :sortBy = 'review' THEN COALESCE(c.review, 0)
-            WHEN :sortBy = 'reviewNumber' THEN COALESCE(c.review_number, 0)
-            ELSE EXTRACT(EPOCH FROM c.created_at)
-        END DESC
-        """;
-
-    // 1. Wyszukiwanie wszystkich
-    @Query(value = """
-        SELECT c.* FROM e_korki.courses c 
-        """ + BASE_SORT_QUERY + """
-        LIMIT :pageSize
-        OFFSET :offset
-        """, nativeQuery = true)
-    List<CourseEntity> findAllCoursesPaged(
-            @Param("sortBy") String sortBy,
-            @Param("pageSize") int pageSize,
-            @Param("offset") long offset
-    );
+    @Query("SELECT c.id FROM CourseEntity c WHERE c.user.id = :userId")
+    List<Long> findIdsByUserId(@Param("userId") Long userId);
 
-    // 2. Wyszukiwanie po nazwie
+    // Ta sama semantyka co CourseTagDictionary: prefiks, najpopularniejsze najpierw, remisy alfabetycznie
+    // (COLLATE "C" porządkuje jak String.compareTo), co najwyżej :limit tagów
     @Query(value = """
-        SELECT c.* FROM e_korki.courses c 
-        WHERE LOWER(c.name) LIKE LOWER(CONCAT('%', :search, '%'))
-        """ + BASE_SORT_QUERY + """
-        LIMIT :pageSize
-        OFFSET :offset
-        """, nativeQuery = true)
-    List<CourseEntity> findByNameContaining(
-            @Param("search") String search,
-            @Param("sortBy") String sortBy,
-            @Param("pageSize") int pageSize,
-            @Param("offset") long offset
-    );
-
-    // 3. Wyszukiwanie po tagu
-    @Query(value = """
-        SELECT c.* FROM e_korki.courses c 
-        WHERE :tag = ANY(c.tags)
-        """ + BASE_SORT_QUERY + """
-        LIMIT :pageSize
-        OFFSET :offset
-        """, nativeQuery = true)
-    List<CourseEntity> findByTag(
-            @Param("tag") String tag,
-            @Param("sortBy") String sortBy,
-            @Param("pageSize") int pageSize,
-            @Param("offset") long offset
-    );
-
-    @Query(value = """
-    SELECT c.* FROM e_korki.courses c 
-    WHERE c.tags && cast(:tags as character varying[])
-    """ + BASE_SORT_QUERY + """
-    LIMIT :pageSize
-    OFFSET :offset
-    """, nativeQuery = true)
-    List<CourseEntity> findByTags(
-            @Param("tags") List<String> tags,
-            @Param("sortBy") String sortBy,
-            @Param("pageSize") int pageSize,
-            @Param("offset") long offset
-    );
-
-    // 4. Wyszukiwanie po nazwie i tagu
-    @Query(value = """
-        SELECT c.* FROM e_korki.courses c 
-        WHERE LOWER(c.name) LIKE LOWER(CONCAT('%', :search, '%'))
-        AND :tag = ANY(c.tags)
-        """ + BASE_SORT_QUERY + """
-        LIMIT :pageSize
-        OFFSET :offset
-        """, nativeQuery = true)
-    List<CourseEntity> findByNameAndTag(
-            @Param("search") String search,
-            @Param("tag") String tag,
-            @Param("sortBy") String sortBy,
-            @Param("pageSize") int pageSize,
-            @Param("offset") long offset
-    );
-
-    @Query(value = """
-        SELECT c.* FROM e_korki.courses c 
-        WHERE LOWER(c.name) LIKE LOWER(CONCAT('%', :search, '%'))
-        AND c.tags && ARRAY[:tags]
-        """ + BASE_SORT_QUERY + """
-        LIMIT :pageSize
-        OFFSET :offset
-        """, nativeQuery = true)
-    List<CourseEntity> findByNameAndTags(
-            @Param("search") String search,
-            @Param("tags") String[] tags,  // Zmień List<String> na String[]
-            @Param("sortBy") String sortBy,
-            @Param("pageSize") int pageSize,
-            @Param("offset") long offset
-    );
-
-
-    // Zapytania COUNT
-    @Query(value = """
-        SELECT COUNT(*) FROM e_korki.courses c 
-        WHERE LOWER(c.name) LIKE LOWER(CONCAT('%', :search, '%'))
-        """, nativeQuery = true)
-    long countByNameContaining(@Param("search") String search);
-
-    @Query(value = """
-        SELECT COUNT(*) FROM e_korki.courses c 
-        WHERE :tag = ANY(c.tags)
-        """, nativeQuery = true)
-    long countByTag(@Param("tag") String tag);
-
-    @Query(value = """
-    SELECT COUNT(*) FROM e_korki.courses c 
-    WHERE c.tags && cast(:tags as character varying[])
-    """, nativeQuery = true)
-    long countByTags(@Param("tags") List<String> tags);
-
-    @Query(value = """
-        SELECT COUNT(*) FROM e_korki.courses c 
-        WHERE LOWER(c.name) LIKE LOWER(CONCAT('%', :search, '%'))
-        AND :tag = ANY(c.tags)
-        """, nativeQuery = true)
-    long countByNameAndTag(
-            @Param("search") String search,
-            @Param("tag") String tag
-    );
-
-    @Query(value = """
-    SELECT COUNT(*) FROM e_korki.courses c 
-    WHERE LOWER(c.name) LIKE LOWER(CONCAT('%', :search, '%'))
-    AND c.tags && cast(:tags as character varying[])
-    """, nativeQuery = true)
-    long countByNameAndTags(
-            @Param("search") String search,
-            @Param("tags") String[] tags
-    );
-
-    @Query(value = "SELECT COUNT(*) FROM e_korki.courses", nativeQuery = true)
-    long countAll();
-
-    @Query(value = """
-            WITH RECURSIVE TagsList AS (
-                SELECT DISTINCT unnest(tags) as tag
-                FROM e_korki.courses
-            )
-            SELECT tag FROM TagsList
-            WHERE :search IS NULL
-            OR LOWER(tag) LIKE LOWER(CONCAT('%', :search, '%'))
+            SELECT LOWER(t.tag) AS tag
+            FROM e_korki.courses c, unnest(c.tags) AS t(tag)
+            WHERE TRIM(t.tag) <> ''
+            AND LOWER(t.tag) LIKE CONCAT(:prefix, '%') ESCAPE '\\'
+            GROUP BY LOWER(t.tag)
+            ORDER BY COUNT(DISTINCT c.id) DESC, LOWER(t.tag) COLLATE "C"
+            LIMIT :limit
             """,
             nativeQuery = true)
-    List<String> searchTags(@Param("search") String search);
+    List<String> searchTags(@Param("prefix") String prefix, @Param("limit") int limit);
 
     @Query("SELECT c FROM CourseEntity c WHERE c.id = :courseId")
     Optional<CourseEntity> findByIdForDetails(@Param("courseId") Long courseId);
 
-    // Nowe zapytania dla filtrowania kursów zalogowanego użytkownika
-    @Query(value = """
-        SELECT c.* FROM e_korki.courses c 
-        WHERE c.user_id != :userId 
-        AND NOT EXISTS (
-            SELECT 1 FROM e_korki.purchased_courses pc 
-            WHERE pc.course_id = c.id AND pc.user_id = :userId
-        )
-        AND LOWER(c.name) LIKE LOWER(CONCAT('%', :search, '%'))
-        """ + BASE_SORT_QUERY + """
-        LIMIT :pageSize
-        OFFSET :offset
-        """, nativeQuery = true)
-    List<CourseEntity> findAvailableByNameForUser(
-            @Param("search") String search,
-            @Param("userId") Long userId,
-            @Param("sortBy") String sortBy,
-            @Param("pageSize") int pageSize,
-            @Param("offset") long offset
-    );
-
-    @Query(value = """
-        SELECT c.* FROM e_korki.courses c 
-        WHERE c.user_id != :userId 
-        AND NOT EXISTS (
-            SELECT 1 FROM e_korki.purchased_courses pc 
-            WHERE pc.course_id = c.id AND pc.user_id = :userId
-        )
-        AND :tag = ANY(c.tags)
-        """ + BASE_SORT_QUERY + """
-        LIMIT :pageSize
-        OFFSET :offset
-        """, nativeQuery = true)
-    List<CourseEntity> findAvailableByTagForUser(
-            @Param("tag") String tag,
-            @Param("userId") Long userId,
-            @Param("sortBy") String sortBy,
-            @Param("pageSize") int pageSize,
-            @Param("offset") long offset
-    );
-
-    @Query(value = """
-    SELECT c.* FROM e_korki.courses c 
-    WHERE c.user_id != :userId 
-    AND NOT EXISTS (
-        SELECT 1 FROM e_korki.purchased_courses pc 
-        WHERE pc.course_id = c.id AND pc.user_id = :userId
-    )
-    AND c.tags && cast(:tags as character varying[])
-    """ + BASE_SORT_QUERY + """
-    LIMIT :pageSize
-    OFFSET :offset
-    """, nativeQuery = true)
-    List<CourseEntity> findAvailableByTagsForUser(
-            @Param("tags") List<String> tags,
-            @Param("userId") Long userId,
-            @Param("sortBy") String sortBy,
-            @Param("pageSize") int pageSize,
-            @Param("offset") long offset
-    );
-
-    @Query(value = """
-        SELECT c.* FROM e_korki.courses c 
-        WHERE c.user_id != :userId 
-        AND NOT EXISTS (
-            SELECT 1 FROM e_korki.purchased_courses pc 
-            WHERE pc.course_id = c.id AND pc.user_id = :userId
-        )
-        AND LOWER(c.name) LIKE LOWER(CONCAT('%', :search, '%'))
-        AND :tag = ANY(c.tags)
-        """ + BASE_SORT_QUERY + """
-        LIMIT :pageSize
-        OFFSET :offset
-        """, nativeQuery = true)
-    List<CourseEntity> findAvailableByNameAndTagForUser(
-            @Param("search") String search,
-            @Param("tag") String tag,
-            @Param("userId") Long userId,
-            @Param("sortBy") String sortBy,
-            @Param("pageSize") int pageSize,
-            @Param("offset") long offset
-    );
+    // Wiersze dla indeksu katalogu w pamięci - bez kolumn banner i description
+    String CATALOG_ROW_SELECT = """
+        SELECT new com.example.ekorki.model.CourseCatalogRow(
+            c.id, c.name, c.review, c.reviewNumber, c.createdAt, c.price, c.user.id, c.tags)
+        FROM CourseEntity c
+        """;
 
-    @Query(value = """
-    SELECT c.* FROM e_korki.courses c 
-    WHERE c.user_id != :userId 
-    AND NOT EXISTS (
-        SELECT 1 FROM e_korki.purchased_courses pc 
-        WHERE pc.course_id = c.id AND pc.user_id = :userId
-    )
-    AND LOWER(c.name) LIKE LOWER(CONCAT('%', :search, '%'))
-    AND c.tags && cast(:tags as character varying[])
-    """ + BASE_SORT_QUERY + """
-    LIMIT :pageSize
-    OFFSET :offset
-    """, nativeQuery = true)
-    List<CourseEntity> findAvailableByNameAndTagsForUser(
-            @Param("search") String search,
-            @Param("tags") List<String> tags,
-            @Param("userId") Long userId,
-            @Param("sortBy") String sortBy,
-            @Param("pageSize") int pageSize,
-            @Param("offset") long offset
-    );
+    @Query(CATALOG_ROW_SELECT)
+    List<CourseCatalogRow> findAllCatalogRows();
+
+    @Query(CATALOG_ROW_SELECT + "WHERE c.id = :courseId")
+    Optional<CourseCatalogRow> findCatalogRowById(@Param("courseId") Long courseId);
+
+    // Karty kursów dla list sklepu - z banera tylko id pliku w magazynie mediów
+    String CARD_SELECT = """
+        SELECT new com.example.ekorki.model.CourseCard(
+            c.id, c.name, c.price, c.duration, c.tags, c.review, c.reviewNumber, c.description,
+            c.createdAt, c.updatedAt,
+            (SELECT COUNT(ch) FROM ChapterEntity ch WHERE ch.course = c),
+            c.user.id,
+            c.bannerMediaId)
+        FROM CourseEntity c
+        """;
 
-    // Nowe zapytania COUNT dla zalogowanego użytkownika
-    @Query(value = """
-        SELECT COUNT(*) FROM e_korki.courses c 
-        WHERE c.user_id != :userId 
-        AND NOT EXISTS (
-            SELECT 1 FROM e_korki.purchased_courses pc 
-            WHERE pc.course_id = c.id AND pc.user_id = :userId
-        )
-        AND LOWER(c.name) LIKE LOWER(CONCAT('%', :search, '%'))
-        """, nativeQuery = true)
-    long countAvailableByNameForUser(
-            @Param("search") String search,
-            @Param("userId") Long userId
-    );
+    @Query(CARD_SELECT + "WHERE c.id IN :ids")
+    List<CourseCard> findCardsByIds(@Param("ids") Collection<Long> ids);
 
-    @Query(value = """
-        SELECT COUNT(*) FROM e_korki.courses c 
-        WHERE c.user_id != :userId 
-        AND NOT EXISTS (
-            SELECT 1 FROM e_korki.purchased_courses pc 
-            WHERE pc.course_id = c.id AND pc.user_id = :userId
-        )
-        AND :tag = ANY(c.tags)
-        """, nativeQuery = true)
-    long countAvailableByTagForUser(
-            @Param("tag") String tag,
-            @Param("userId") Long userId
-    );
+    @Query(CARD_SELECT)
+    List<CourseCard> findAllCards();
 
-    @Query(value = """
-    SELECT COUNT(*) FROM e_korki.courses c 
-    WHERE c.user_id != :userId 
-    AND NOT EXISTS (
-        SELECT 1 FROM e_korki.purchased_courses pc 
-        WHERE pc.course_id = c.id AND pc.user_id = :userId
-    )
-    AND  c.tags && cast(:tags as character varying[])
-    """, nativeQuery = true)
-    long countAvailableByTagsForUser(
-            @Param("tags") List<String> tags,
-            @Param("userId") Long userId
-    );
+    @Query(CARD_SELECT + "WHERE c.user.id = :userId ORDER BY c.id")
+    List<CourseCard> findCardsByOwnerId(@Param("userId") Long userId);
 
-    @Query(value = """
-        SELECT COUNT(*) FROM e_korki.courses c 
-        WHERE c.user_id != :userId 
-        AND NOT EXISTS (
-            SELECT 1 FROM e_korki.purchased_courses pc 
-            WHERE pc.course_id = c.id AND pc.user_id = :userId
-        )
-        AND LOWER(c.name) LIKE LOWER(CONCAT('%', :search, '%'))
-        AND :tag = ANY(c.tags)
-        """, nativeQuery = true)
-    long countAvailableByNameAndTagForUser(
-            @Param("search") String search,
-            @Param("tag") String tag,
-            @Param("userId") Long userId
-    );
+    @Query("SELECT new com.example.ekorki.model.MediaRef(c.bannerMediaId, c.bannerSize, c.mimeType) FROM CourseEntity c WHERE c.id = :courseId")
+    Optional<MediaRef> findBannerById(@Param("courseId") Long courseId);
 
-    @Query(value = """
-    SELECT COUNT(*) FROM e_korki.courses c 
-    WHERE c.user_id != :userId 
-    AND NOT EXISTS (
-        SELECT 1 FROM e_korki.purchased_courses pc 
-        WHERE pc.course_id = c.id AND pc.user_id = :userId
-    )
-    AND LOWER(c.name) LIKE LOWER(CONCAT('%', :search, '%'))
-    AND  c.tags && cast(:tags as character varying[])
-    """, nativeQuery = true)
-    long countAvailableByNameAndTagsForUser(
-            @Param("search") String search,
-            @Param("tags") List<String> tags,
-            @Param("userId") Long userId
-    );
+    @Query("SELECT c.mimeType FROM CourseEntity c WHERE c.bannerMediaId = :mediaId")
+    List<String> findBannerMimeTypes(@Param("mediaId") Long mediaId);
 
-    @Query(value = """
-        SELECT c.* FROM e_korki.courses c 
-        WHERE c.user_id != :userId 
-        AND NOT EXISTS (
-            SELECT 1 FROM e_korki.purchased_courses pc 
-            WHERE pc.course_id = c.id AND pc.user_id = :userId
-        )
-        """ + BASE_SORT_QUERY + """
-        LIMIT :pageSize
-        OFFSET :offset
-        """, nativeQuery = true)
-    List<CourseEntity> findAllAvailableForUser(
-            @Param("userId") Long userId,
-            @Param("sortBy") String sortBy,
-            @Param("pageSize") int pageSize,
-            @Param("offset") long offset
-    );
+    // Baner przetworzony w tle - krótka transakcja na jeden wiersz; zadanie z nieaktualnym tokenem zmienia 0 wierszy
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE CourseEntity c
+        SET c.bannerMediaId = :mediaId, c.bannerSize = :size, c.mimeType = :mimeType, c.bannerStatus = :status
+        WHERE c.id = :courseId AND c.bannerJob = :job
+    """)
+    int completeBanner(@Param("courseId") Long courseId,
+                       @Param("job") String job,
+                       @Param("mediaId") Long mediaId,
+                       @Param("size") Long size,
+                       @Param("mimeType") String mimeType,
+                       @Param("status") MediaStatus status);
 
-    @Query(value = """
-        SELECT COUNT(*) FROM e_korki.courses c 
-        WHERE c.user_id != :userId 
-        AND NOT EXISTS (
-            SELECT 1 FROM e_korki.purchased_courses pc 
-            WHERE pc.course_id = c.id AND pc.user_id = :userId
-        )
-        """, nativeQuery = true)
-    long countAllAvailableForUser(@Param("userId") Long userId);
+    @Modifying
+    @Transactional
+    @Query("UPDATE CourseEntity c SET c.bannerStatus = :status WHERE c.id = :courseId AND c.bannerJob = :job")
+    int updateBannerStatus(@Param("courseId") Long courseId, @Param("job") String job, @Param("status") MediaStatus status);
 
     @Query(value = """
-    SELECT c.* FROM e_korki.courses c
+    SELECT c.id FROM e_korki.courses c
     WHERE c.review_number > 0
     AND (:userId IS NULL OR (
         c.user_id != :userId 
@@ -397,7 +117,7 @@ public interface CourseRepository extends JpaRepository<CourseEntity, Long> {
         (1 + 1.96 * 1.96 / c.review_number) DESC
     LIMIT 3
     """, nativeQuery = true)
-    List<CourseEntity> findBestCourses(@Param("userId") Long userId);
+    List<Long> findBestCourses(@Param("userId") Long userId);
 
     @Query("SELECT c FROM CourseEntity c " +
             "LEFT JOIN FETCH c.chapters ch " +
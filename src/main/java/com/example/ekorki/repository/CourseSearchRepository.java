@@ -0,0 +1,229 @@
+package com.example.ekorki.repository;
+
+import com.example.ekorki.model.CourseCursor;
+import com.example.ekorki.model.CourseSearchFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Wyszukiwanie kursów jednym zapytaniem składanym z aktywnych filtrów.
+// Strona i liczba wszystkich wyników przychodzą razem dzięki COUNT(*) OVER().
+@Repository
+@RequiredArgsConstructor
+public class CourseSearchRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // SQL budowany raz na kształt filtra; stały tekst pozwala sterownikowi PostgreSQL
+    // ponownie używać przygotowanych po stronie serwera zapytań
+    private final Map<String, String> statements = new ConcurrentHashMap<>();
+
+    private static final String RELEVANCE_SEARCH = """
+            (c.search_vector @@ websearch_to_tsquery('simple', :search)
+                OR LOWER(c.name) LIKE LOWER(CONCAT('%', :searchPattern, '%')) ESCAPE '\\'
+                OR LOWER(:search) <% LOWER(c.name))""";
+
+    private static final String RELEVANCE_RANK = """
+            ts_rank_cd(c.search_vector, websearch_to_tsquery('simple', :search), 32)
+                + word_similarity(LOWER(:search), LOWER(c.name))""";
+
+    public record SearchPage(List<Long> ids, long total) {
+    }
+
+    // Granice przedziałów cen dla width_bucket - przedział i to [PRICE_BOUNDARIES[i-1], PRICE_BOUNDARIES[i])
+    public static final int[] PRICE_BOUNDARIES = {50, 100, 200, 500};
+    // Przedziały ocen: 0 = [0, 1), ..., 4 = [4, 5]
+    public static final int RATING_BUCKETS = 5;
+
+    public record FacetCounts(Map<String, Long> tags, long[] priceBuckets, long[] ratingBuckets) {
+    }
+
+    // sortBy: date, review, reviewNumber lub relevance (tylko z frazą wyszukiwania)
+    public SearchPage findPage(CourseSearchFilter filter, String sortBy, long offset, int limit) {
+        boolean byRelevance = "relevance".equals(sortBy);
+        String sql = statements.computeIfAbsent("page:" + sortBy + ":" + filter.shape(), key -> """
+                SELECT c.id, COUNT(*) OVER() AS total FROM e_korki.courses c
+                """ + where(filter, byRelevance) + """
+                ORDER BY %s DESC, c.id DESC
+                LIMIT :limit
+                OFFSET :offset
+                """.formatted(sortExpression(sortBy)));
+
+        MapSqlParameterSource params = parameters(filter)
+                .addValue("limit", limit)
+                .addValue("offset", offset);
+
+        List<Long> ids = new ArrayList<>(limit);
+        long[] total = {0};
+        jdbcTemplate.query(sql, params, rs -> {
+            ids.add(rs.getLong("id"));
+            total[0] = rs.getLong("total");
+        });
+
+        // Strona za ostatnim wynikiem nie zwraca wierszy, więc i liczby - doliczamy osobno
+        if (ids.isEmpty() && offset > 0) {
+            total[0] = count(filter, byRelevance);
+        }
+
+        return new SearchPage(ids, total[0]);
+    }
+
+    // Wszystkie fasety jednym przejściem po przefiltrowanych kursach - GROUPING SETS zamiast zapytania na fasetę
+    public FacetCounts findFacets(CourseSearchFilter filter, boolean byRelevance) {
+        String sql = statements.computeIfAbsent("facets:" + byRelevance + ":" + filter.shape(), key -> """
+                WITH filtered AS (
+                    SELECT c.id, c.tags, c.price, c.review FROM e_korki.courses c
+                """ + where(filter, byRelevance) + """
+                ),
+                expanded AS (
+                    SELECT f.id, t.tag,
+                        width_bucket(f.price, CAST(ARRAY[%s] AS NUMERIC[])) AS price_bucket,
+                        CAST(LEAST(FLOOR(COALESCE(f.review, 0)), %d) AS INTEGER) AS rating_bucket
+                    FROM filtered f
+                    LEFT JOIN LATERAL unnest(f.tags) AS t(tag) ON TRUE
+                )
+                SELECT GROUPING(tag, price_bucket, rating_bucket) AS grouping_id,
+                    tag, price_bucket, rating_bucket, COUNT(DISTINCT id) AS courses
+                FROM expanded
+                GROUP BY GROUPING SETS ((tag), (price_bucket), (rating_bucket))
+                """.formatted(
+                        Arrays.stream(PRICE_BOUNDARIES).mapToObj(String::valueOf).collect(Collectors.joining(", ")),
+                        RATING_BUCKETS - 1));
+
+        Map<String, Long> tags = new HashMap<>();
+        long[] priceBuckets = new long[PRICE_BOUNDARIES.length + 1];
+        long[] ratingBuckets = new long[RATING_BUCKETS];
+
+        jdbcTemplate.query(sql, parameters(filter), rs -> {
+            long courses = rs.getLong("courses");
+            // Bit ustawiony w GROUPING oznacza kolumnę spoza zbioru grupowania
+            switch (rs.getInt("grouping_id")) {
+                case 0b011 -> {
+                    String tag = rs.getString("tag");
+                    if (tag != null) {
+                        tags.put(tag, courses);
+                    }
+                }
+                case 0b101 -> priceBuckets[rs.getInt("price_bucket")] = courses;
+                case 0b110 -> ratingBuckets[Math.max(0, rs.getInt("rating_bucket"))] = courses;
+                default -> {
+                }
+            }
+        });
+
+        return new FacetCounts(tags, priceBuckets, ratingBuckets);
+    }
+
+    // Stronicowanie kursorem - kolejna strona za pozycją (klucz, id) bez liczenia wszystkich wyników
+    public List<Long> findPageAfter(CourseSearchFilter filter, CourseCursor after, int limit) {
+        String sortExpression = sortExpression(after.sortBy());
+        String sql = statements.computeIfAbsent("keyset:" + after.sortBy() + ":" + filter.shape(), key -> """
+                SELECT c.id FROM e_korki.courses c
+                """ + where(filter, false) + """
+                AND (%s, c.id) < (:afterKey, :afterId)
+                ORDER BY %s DESC, c.id DESC
+                LIMIT :limit
+                """.formatted(sortExpression, sortExpression));
+
+        MapSqlParameterSource params = parameters(filter)
+                .addValue("afterKey", after.sortKey())
+                .addValue("afterId", after.id())
+                .addValue("limit", limit);
+
+        return jdbcTemplate.queryForList(sql, params, Long.class);
+    }
+
+    // Ile z podanych kursów pasuje do filtra - korekta liczby wyników po odfiltrowaniu kursów użytkownika
+    public long countAmong(CourseSearchFilter filter, String sortBy, long[] courseIds) {
+        boolean byRelevance = "relevance".equals(sortBy);
+        String sql = statements.computeIfAbsent("among:" + byRelevance + ":" + filter.shape(), key -> """
+                SELECT COUNT(*) FROM e_korki.courses c
+                """ + where(filter, byRelevance) + """
+                AND c.id = ANY(:courseIds)
+                """);
+
+        MapSqlParameterSource params = parameters(filter)
+                .addValue("courseIds", Arrays.stream(courseIds).boxed().toArray(Long[]::new));
+
+        Long total = jdbcTemplate.queryForObject(sql, params, Long.class);
+        return total != null ? total : 0;
+    }
+
+    private long count(CourseSearchFilter filter, boolean byRelevance) {
+        String sql = statements.computeIfAbsent("count:" + byRelevance + ":" + filter.shape(), key -> """
+                SELECT COUNT(*) FROM e_korki.courses c
+                """ + where(filter, byRelevance));
+
+        Long total = jdbcTemplate.queryForObject(sql, parameters(filter), Long.class);
+        return total != null ? total : 0;
+    }
+
+    private String where(CourseSearchFilter filter, boolean byRelevance) {
+        List<String> conditions = new ArrayList<>();
+        conditions.add("TRUE");
+
+        if (filter.hasSearch()) {
+            conditions.add(byRelevance
+                    ? RELEVANCE_SEARCH
+                    : "LOWER(c.name) LIKE LOWER(CONCAT('%', :searchPattern, '%')) ESCAPE '\\'");
+        }
+        if (filter.hasTags()) {
+            // Operator && korzysta z indeksu GIN na tagach
+            conditions.add("c.tags && CAST(ARRAY[:tags] AS VARCHAR[])");
+        }
+        if (filter.getExcludeOwnedBy() != null) {
+            conditions.add("c.user_id <> :ownerId");
+        }
+        if (filter.getExcludePurchasedBy() != null) {
+            conditions.add("""
+                    NOT EXISTS (
+                        SELECT 1 FROM e_korki.purchased_courses pc
+                        WHERE pc.course_id = c.id AND pc.user_id = :purchaserId
+                    )""");
+        }
+        if (filter.getMinPrice() != null) {
+            conditions.add("c.price >= :minPrice");
+        }
+        if (filter.getMaxPrice() != null) {
+            conditions.add("c.price <= :maxPrice");
+        }
+
+        return "WHERE " + String.join("\nAND ", conditions) + "\n";
+    }
+
+    private String sortExpression(String sortBy) {
+        return switch (sortBy) {
+            case "relevance" -> RELEVANCE_RANK;
+            case "review" -> "COALESCE(c.review, 0)";
+            case "reviewNumber" -> "COALESCE(c.review_number, 0)";
+            // NULL jako 'infinity' - porównanie krotek z kursorem nie gubi kursów bez daty
+            default -> "COALESCE(c.created_at, CAST('infinity' AS TIMESTAMP))";
+        };
+    }
+
+    // Fraza użytkownika szuka dosłownie - % i _ nie są wzorcami, tak jak w indeksie katalogu w pamięci
+    public static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+
+    private MapSqlParameterSource parameters(CourseSearchFilter filter) {
+        return new MapSqlParameterSource()
+                .addValue("search", filter.getSearch())
+                .addValue("searchPattern", filter.hasSearch() ? escapeLike(filter.getSearch()) : null)
+                .addValue("tags", filter.getTags())
+                .addValue("ownerId", filter.getExcludeOwnedBy())
+                .addValue("purchaserId", filter.getExcludePurchasedBy())
+                .addValue("minPrice", filter.getMinPrice())
+                .addValue("maxPrice", filter.getMaxPrice());
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.ekorki.repository;
+
+import com.example.ekorki.entity.MediaEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface MediaRepository extends JpaRepository<MediaEntity, Long> {
+    Optional<MediaEntity> findBySha256(String sha256);
+
+    // Dwa równoległe zapisy tych samych bajtów nie łamią unikalności skrótu - drugi po prostu nic nie wstawia
+    @Modifying
+    @Transactional
+    @Query(value = """
+        INSERT INTO e_korki.media (sha256, size, created_at)
+        VALUES (:sha256, :size, CURRENT_TIMESTAMP)
+        ON CONFLICT (sha256) DO NOTHING
+    """, nativeQuery = true)
+    int insertIfAbsent(@Param("sha256") String sha256, @Param("size") long size);
+}
@@ -0,0 +1,30 @@
+package com.example.ekorki.repository;
+
+import com.example.ekorki.entity.MediaVariantEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface MediaVariantRepository extends JpaRepository<MediaVariantEntity, Long> {
+    Optional<MediaVariantEntity> findByMediaIdAndVariant(Long mediaId, String variant);
+
+    // Ten sam obraz wysłany drugi raz daje te same warianty - wiersz już istnieje
+    @Modifying
+    @Transactional
+    @Query(value = """
+        INSERT INTO e_korki.media_variants (media_id, variant, variant_media_id, width, height)
+        VALUES (:mediaId, :variant, :variantMediaId, :width, :height)
+        ON CONFLICT (media_id, variant) DO NOTHING
+    """, nativeQuery = true)
+    int insertIfAbsent(@Param("mediaId") Long mediaId,
+                       @Param("variant") String variant,
+                       @Param("variantMediaId") Long variantMediaId,
+                       @Param("width") int width,
+                       @Param("height") int height);
+}
@@ -2,6 +2,8 @@ package com.example.ekorki.repository;
 
 import com.example.ekorki.entity.PurchasedCourseEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -15,4 +17,7 @@ public interface PurchasedCourseRepository extends JpaRepository<PurchasedCourse
 
     boolean existsByUserIdAndCourseUserId(Long userId, Long teacherId);
 
+    @Query("SELECT pc.course.id FROM PurchasedCourseEntity pc WHERE pc.user.id = :userId ORDER BY pc.id")
+    List<Long> findCourseIdsByUserId(@Param("userId") Long userId);
+
 }
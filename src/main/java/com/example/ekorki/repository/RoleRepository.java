@@ -5,6 +5,7 @@ import com.example.ekorki.entity.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +14,7 @@ public interface RoleRepository extends JpaRepository<RoleEntity, Long> {
     void deleteByUserAndRole(UserEntity user, RoleEntity.Role role);
     boolean existsByUserIdAndRole(Long userId, RoleEntity.Role role);
     List<RoleEntity> findByUserId(Long userId);
+    List<RoleEntity> findByUserIdIn(Collection<Long> userIds);
 
     Optional<RoleEntity> findByUserIdAndRole(Long id, RoleEntity.Role role);
 }
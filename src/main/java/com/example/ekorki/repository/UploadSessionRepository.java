@@ -0,0 +1,17 @@
+package com.example.ekorki.repository;
+
+import com.example.ekorki.entity.UploadSessionEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSessionEntity, String> {
+    List<UploadSessionEntity> findByStatusAndExpiresAtBefore(UploadSessionEntity.Status status, LocalDateTime time);
+
+    Optional<UploadSessionEntity> findFirstByUserIdAndMediaIdAndStatus(Long userId, Long mediaId,
+                                                                       UploadSessionEntity.Status status);
+}
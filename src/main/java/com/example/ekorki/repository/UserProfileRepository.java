@@ -2,12 +2,21 @@ package com.example.ekorki.repository;
 
 import com.example.ekorki.entity.UserProfileEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 
 @Repository
 public interface UserProfileRepository extends JpaRepository<UserProfileEntity, Long> {
     Optional<UserProfileEntity> findByUserId(Long userId);
+
+    List<UserProfileEntity> findByUserIdIn(Collection<Long> userIds);
+
+    @Query("SELECT p.pictureMimeType FROM UserProfileEntity p WHERE p.pictureMediaId = :mediaId")
+    List<String> findPictureMimeTypes(@Param("mediaId") Long mediaId);
 }
@@ -1,8 +1,16 @@
 package com.example.ekorki.repository;
 
 import com.example.ekorki.entity.UserEntity;
+import com.example.ekorki.model.TokenVersion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 
 @Repository
@@ -10,4 +18,14 @@ public interface UserRepository extends JpaRepository<UserEntity, Long> {
     UserEntity findByEmail(String email);
     Boolean existsByEmail(String email);
 
+    // Tylko użytkownicy zmienieni w czasie życia tokenu dostępu - wcześniejsze tokeny i tak już wygasły
+    @Query("SELECT new com.example.ekorki.model.TokenVersion(u.id, u.tokenVersion) FROM UserEntity u WHERE u.tokenVersionChangedAt > :since")
+    List<TokenVersion> findTokenVersionsChangedSince(@Param("since") LocalDateTime since);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserEntity u SET u.password = :newPassword WHERE u.id = :id AND u.password = :oldPassword")
+    int updatePasswordIfUnchanged(@Param("id") Long id,
+                                  @Param("oldPassword") String oldPassword,
+                                  @Param("newPassword") String newPassword);
 }
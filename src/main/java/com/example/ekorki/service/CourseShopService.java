@@ -3,11 +3,21 @@ package com.example.ekorki.service;
 import com.example.ekorki.dto.chapter.ChapterShortDTO;
 import com.example.ekorki.dto.courseShop.*;
 import com.example.ekorki.entity.CourseEntity;
-import com.example.ekorki.entity.UserProfileEntity;
+import com.example.ekorki.model.CourseCard;
+import com.example.ekorki.model.CourseCursor;
+import com.example.ekorki.model.CourseSearchFilter;
+import com.example.ekorki.model.MediaRef;
+import com.example.ekorki.model.UserCourseSet;
 import com.example.ekorki.repository.CourseRepository;
+import com.example.ekorki.repository.CourseSearchRepository;
 import com.example.ekorki.repository.PurchasedCourseRepository;
-import com.example.ekorki.repository.UserProfileRepository;
-import com.example.ekorki.service.entity.RoleService;
+import com.example.ekorki.service.catalog.BestCoursesLeaderboard;
+import com.example.ekorki.service.catalog.CourseCatalogIndex;
+import com.example.ekorki.service.catalog.CourseSearchResultCache;
+import com.example.ekorki.service.catalog.CourseTagDictionary;
+import com.example.ekorki.service.catalog.UserCourseSetCache;
+import com.example.ekorki.service.media.ImageVariant;
+import com.example.ekorki.service.media.MediaService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,6 +32,7 @@ import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.cache.annotation.Cacheable;
 
+import java.math.BigDecimal;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -32,13 +43,21 @@ import java.util.stream.Collectors;
 @CacheConfig(cacheNames = "courses")
 public class CourseShopService {
     private final CourseRepository courseRepository;
-    private final UserProfileRepository userProfileRepository;
+    private final CourseSearchRepository courseSearchRepository;
     private final PurchasedCourseRepository purchasedCourseRepository;
-    private final RoleService roleService;
+    private final OwnerCardService ownerCardService;
+    private final CourseCatalogIndex courseCatalogIndex;
+    private final CourseTagDictionary courseTagDictionary;
+    private final CourseSearchResultCache courseSearchResultCache;
+    private final UserCourseSetCache userCourseSetCache;
+    private final BestCoursesLeaderboard bestCoursesLeaderboard;
     @Autowired
     private CacheManager cacheManager;
 
-    @Cacheable(key = "'search_' + #search + '_tag_' + #tag + '_page_' + #page + '_size_' + #size + '_sortBy_' + #sortBy + '_userId_' + #loggedInUserId")
+    private static final int BEST_COURSES_LIMIT = 3;
+    private static final int MAX_TAG_FACETS = 20;
+    private volatile HydratedBestCourses hydratedBestCourses;
+
     @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
     public Page<CourseShopResponseDTO> searchCourses(
             String search,
@@ -46,231 +65,290 @@ public class CourseShopService {
             int page,
             int size,
             String sortBy,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
             Long loggedInUserId) {
 
         try {
-            validateSearchParams(page, size);
-            sortBy = validateAndGetSortBy(sortBy);
-            long offset = calculateOffset(page, size);
-
-            List<CourseEntity> courses;
-            long total;
-
-            // Logika dla zalogowanego użytkownika
-            if (loggedInUserId != null) {
-                if (search != null && tag != null) {
-                    courses = courseRepository.findAvailableByNameAndTagForUser(search, tag.toLowerCase(), loggedInUserId, sortBy, size, offset);
-                    total = courseRepository.countAvailableByNameAndTagForUser(search, tag.toLowerCase(), loggedInUserId);
-                } else if (search != null) {
-                    courses = courseRepository.findAvailableByNameForUser(search, loggedInUserId, sortBy, size, offset);
-                    total = courseRepository.countAvailableByNameForUser(search, loggedInUserId);
-                } else if (tag != null) {
-                    courses = courseRepository.findAvailableByTagForUser(tag.toLowerCase(), loggedInUserId, sortBy, size, offset);
-                    total = courseRepository.countAvailableByTagForUser(tag.toLowerCase(), loggedInUserId);
-                } else {
-                    courses = courseRepository.findAllAvailableForUser(loggedInUserId, sortBy, size, offset);
-                    total = courseRepository.countAllAvailableForUser(loggedInUserId);
-                }
-            }
-            // Logika dla niezalogowanego użytkownika
-            else {
-                if (search != null && tag != null) {
-                    courses = courseRepository.findByNameAndTag(search, tag.toLowerCase(), sortBy, size, offset);
-                    total = courseRepository.countByNameAndTag(search, tag.toLowerCase());
-                } else if (search != null) {
-                    courses = courseRepository.findByNameContaining(search, sortBy, size, offset);
-                    total = courseRepository.countByNameContaining(search);
-                } else if (tag != null) {
-                    courses = courseRepository.findByTag(tag.toLowerCase(), sortBy, size, offset);
-                    total = courseRepository.countByTag(tag.toLowerCase());
-                } else {
-                    courses = courseRepository.findAllCoursesPaged(sortBy, size, offset);
-                    total = courseRepository.countAll();
-                }
-            }
-
-            List<CourseShopResponseDTO> dtos = courses.stream()
-                    .map(this::mapToCourseShopResponseDTO)
-                    .collect(Collectors.toList());
-
-            return new PageImpl<>(dtos, PageRequest.of(page, size), total);
+            CourseSearchFilter filter = buildFilter(search, tag != null ? List.of(tag) : null, minPrice, maxPrice, loggedInUserId);
+            return findPage(filter, page, size, sortBy);
         } catch (Exception e) {
             log.error("Unexpected error in searchCourses: {}", e.getMessage());
             throw e;
         }
     }
 
+    private Page<CourseShopResponseDTO> findPage(CourseSearchFilter filter, int page, int size, String sortBy) {
+        validateSearchParams(page, size);
+        // Sortowanie po trafności ma sens tylko przy wyszukiwaniu frazy
+        boolean byRelevance = "relevance".equals(sortBy) && filter.hasSearch();
+        sortBy = validateAndGetSortBy(sortBy);
+        long offset = calculateOffset(page, size);
+
+        List<Long> courseIds;
+        long total;
+
+        // Indeks katalogu w pamięci - baza tylko do pobrania kursów z wybranej strony
+        if (!byRelevance && courseCatalogIndex.isReady()) {
+            CourseCatalogIndex.SearchResult result = courseCatalogIndex.search(
+                    filter, sortBy, offset, size, userCourseSetCache.get(filter.getExcludePurchasedBy()));
+            courseIds = result.ids();
+            total = result.total();
+        } else {
+            CourseSearchRepository.SearchPage result = findSharedPage(
+                    filter, byRelevance ? "relevance" : sortBy, offset, size);
+            courseIds = result.ids();
+            total = result.total();
+        }
+
+        List<CourseShopResponseDTO> dtos = mapToCourseShopResponseDTOs(findCardsInOrder(courseIds));
+
+        return new PageImpl<>(dtos, PageRequest.of(page, size), total);
+    }
+
+    // Liczby kursów per tag, przedział ceny i przedział oceny dla bieżącego filtra
     @Transactional(readOnly = true)
-    public Page<CourseShopResponseDTO> searchCoursesWithTags(
+    public CourseFacetsDTO getFacets(
             String search,
-            List<String> tags,
-            int page,
-            int size,
+            String tag,
             String sortBy,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
             Long loggedInUserId) {
 
-        try {
-            validateSearchParams(page, size);
-            sortBy = validateAndGetSortBy(sortBy);
-            long offset = calculateOffset(page, size);
-
-            List<CourseEntity> courses;
-            long total;
-
-            // Logika dla zalogowanego użytkownika
-            if (loggedInUserId != null) {
-                if (search != null) {
-                    // Używamy metod dla wielu tagów
-                    courses = courseRepository.findAvailableByNameAndTagsForUser(
-                            search, tags, loggedInUserId, sortBy, size, offset);
-                    total = courseRepository.countAvailableByNameAndTagsForUser(
-                            search, tags, loggedInUserId);
-                } else {
-                    courses = courseRepository.findAvailableByTagsForUser(
-                            tags, loggedInUserId, sortBy, size, offset);
-                    total = courseRepository.countAvailableByTagsForUser(
-                            tags, loggedInUserId);
-                }
+        CourseSearchFilter filter = buildFilter(search, tag != null ? List.of(tag) : null, minPrice, maxPrice, loggedInUserId);
+        boolean byRelevance = "relevance".equals(sortBy) && filter.hasSearch();
+        CourseSearchRepository.FacetCounts counts = courseSearchRepository.findFacets(filter, byRelevance);
+
+        Map<String, Long> tags = counts.tags().entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(MAX_TAG_FACETS)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+
+        int[] boundaries = CourseSearchRepository.PRICE_BOUNDARIES;
+        List<FacetBucketDTO> priceRanges = new ArrayList<>();
+        for (int i = 0; i < counts.priceBuckets().length; i++) {
+            priceRanges.add(FacetBucketDTO.builder()
+                    .from(BigDecimal.valueOf(i == 0 ? 0 : boundaries[i - 1]))
+                    .to(i < boundaries.length ? BigDecimal.valueOf(boundaries[i]) : null)
+                    .count(counts.priceBuckets()[i])
+                    .build());
+        }
+
+        List<FacetBucketDTO> ratings = new ArrayList<>();
+        for (int i = 0; i < counts.ratingBuckets().length; i++) {
+            ratings.add(FacetBucketDTO.builder()
+                    .from(BigDecimal.valueOf(i))
+                    .to(BigDecimal.valueOf(i + 1))
+                    .count(counts.ratingBuckets()[i])
+                    .build());
+        }
+
+        return CourseFacetsDTO.builder()
+                .tags(tags)
+                .priceRanges(priceRanges)
+                .ratings(ratings)
+                .build();
+    }
+
+    // Strona wycinana ze wspólnego okna wyników; kursy użytkownika odfiltrowywane w pamięci.
+    // Okno jest pobierane z zapasem, więc pominięte kursy nie skracają pierwszych stron.
+    private CourseSearchRepository.SearchPage findSharedPage(CourseSearchFilter filter, String sortBy, long offset, int size) {
+        CourseSearchFilter sharedFilter = filter.withoutUser();
+        UserCourseSet excludedCourses = userCourseSetCache.get(filter.getExcludePurchasedBy());
+        CourseSearchResultCache.Window window = courseSearchResultCache.get(sharedFilter, sortBy);
+
+        List<Long> pageIds = new ArrayList<>(size);
+        long skipped = 0;
+        for (long courseId : window.ids()) {
+            if (pageIds.size() == size) {
+                break;
             }
-            // Logika dla niezalogowanego użytkownika
-            else {
-                if (search != null) {
-                    courses = courseRepository.findByNameAndTags(
-                            search,
-                            tags.toArray(new String[0]),  // Konwersja List<String> na String[]
-                            sortBy,
-                            size,
-                            offset
-                    );
-                    total = courseRepository.countByNameAndTags(
-                            search,
-                            tags.toArray(new String[0])  // Konwersja List<String> na String[]
-                    );
-                } else {
-                    courses = courseRepository.findByTags(tags, sortBy, size, offset);
-                    total = courseRepository.countByTags(tags);
-                }
+            if (excludedCourses.contains(courseId)) {
+                continue;
             }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            pageIds.add(courseId);
+        }
 
-            List<CourseShopResponseDTO> dtos = courses.stream()
-                    .map(this::mapToCourseShopResponseDTO)
-                    .collect(Collectors.toList());
+        // Strona wychodzi poza zapamiętane okno - zwykłe zapytanie z filtrem użytkownika
+        if (pageIds.size() < size && !window.complete()) {
+            return courseSearchRepository.findPage(filter, sortBy, offset, size);
+        }
 
-            return new PageImpl<>(dtos, PageRequest.of(page, size), total);
-        } catch (Exception e) {
-            log.error("Unexpected error in searchCoursesWithTags: {}", e.getMessage());
-            throw e;
+        long total = window.total();
+        if (!excludedCourses.isEmpty()) {
+            total -= window.complete()
+                    ? window.countAmong(excludedCourses)
+                    : courseSearchRepository.countAmong(sharedFilter, sortBy, excludedCourses.courseIds());
         }
+        return new CourseSearchRepository.SearchPage(pageIds, total);
     }
 
-    @Transactional
-    public List<String> searchTags(String search) {
-        return courseRepository.searchTags(search);
+    // Zalogowany użytkownik nie widzi w sklepie swoich ani kupionych kursów
+    private CourseSearchFilter buildFilter(String search, List<String> tags, BigDecimal minPrice, BigDecimal maxPrice, Long loggedInUserId) {
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new IllegalArgumentException("Minimum price cannot be greater than maximum price");
+        }
+
+        return CourseSearchFilter.builder()
+                .search(search)
+                .tags(tags != null
+                        ? tags.stream().map(String::toLowerCase).collect(Collectors.toList())
+                        : null)
+                .excludeOwnedBy(loggedInUserId)
+                .excludePurchasedBy(loggedInUserId)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .build();
+    }
+
+    public List<CourseShopResponseDTO> getCourseCardsInOrder(List<Long> courseIds) {
+        return mapToCourseShopResponseDTOs(findCardsInOrder(courseIds));
     }
 
-    @Cacheable(value = "courseOwnerProfiles", key = "#course.id")
-    public CourseShopResponseDTO mapToCourseShopResponseDTO(CourseEntity course) {
+    // Karty kursów w kolejności podanych id - zapytania wyszukujące zwracają już tylko id
+    private List<CourseCard> findCardsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, CourseCard> coursesById = courseRepository.findCardsByIds(ids).stream()
+                .collect(Collectors.toMap(CourseCard::id, course -> course));
+
+        return ids.stream()
+                .map(coursesById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+    public CourseCursorPageDTO searchCoursesByCursor(
+            String search,
+            String tag,
+            int size,
+            String sortBy,
+            String cursor,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Long loggedInUserId) {
+
         try {
-            UserProfileEntity ownerProfile = userProfileRepository.findByUserId(course.getUser().getId())
-                    .orElse(null);
+            validateSearchParams(0, size);
+            sortBy = validateAndGetSortBy(sortBy);
+            CourseCursor after = CourseCursor.decode(cursor, sortBy);
+            CourseSearchFilter filter = buildFilter(search, tag != null ? List.of(tag) : null, minPrice, maxPrice, loggedInUserId);
 
-            if (ownerProfile == null) {
-                log.warn("Owner profile not found for course ID: {}", course.getId());
+            // Pobieramy jeden rekord więcej, żeby wiedzieć czy istnieje następna strona
+            List<Long> courseIds = courseSearchRepository.findPageAfter(filter, after, size + 1);
+
+            boolean hasNext = courseIds.size() > size;
+            if (hasNext) {
+                courseIds = courseIds.subList(0, size);
             }
+            List<CourseCard> courses = findCardsInOrder(courseIds);
 
-            return CourseShopResponseDTO.builder()
-                    .courseData(mapToCourseDataDTO(course))
-                    .ownerData(mapToOwnerDataDTO(ownerProfile))
-                    .build();
+            String nextCursor = hasNext && !courses.isEmpty()
+                    ? CourseCursor.after(sortBy, courses.get(courses.size() - 1)).encode()
+                    : null;
 
+            List<CourseShopResponseDTO> dtos = mapToCourseShopResponseDTOs(courses);
+
+            return CourseCursorPageDTO.builder()
+                    .courses(dtos)
+                    .nextCursor(nextCursor)
+                    .hasNext(hasNext)
+                    .build();
         } catch (Exception e) {
-            log.error("Error mapping course to DTO: {}", e.getMessage());
-            return null;  // Return null instead of throwing to allow partial results
+            log.error("Unexpected error in searchCoursesByCursor: {}", e.getMessage());
+            throw e;
         }
     }
 
-    private CourseDataDTO mapToCourseDataDTO(CourseEntity course) {
-        if (course == null) {
-            return null;
-        }
+    @Transactional(readOnly = true)
+    public Page<CourseShopResponseDTO> searchCoursesWithTags(
+            String search,
+            List<String> tags,
+            int page,
+            int size,
+            String sortBy,
+            Long loggedInUserId) {
 
         try {
-            Map<String, Object> bannerData = Optional.ofNullable(course.getBanner())
-                    .map(banner -> {
-                        Map<String, Object> data = new HashMap<>();
-                        data.put("data", banner);
-                        data.put("mimeType", course.getMimeType());
-                        return data;
-                    })
-                    .orElse(null);
-
-            return CourseDataDTO.builder()
-                    .id(course.getId())
-                    .name(course.getName())
-                    .banner(bannerData)
-                    .price(course.getPrice())
-                    .duration(course.getDuration())
-                    .tags(course.getTags())
-                    .review(course.getReview())
-                    .reviewNumber(course.getReviewNumber())
-                    .description(course.getDescription())
-                    .createdAt(course.getCreatedAt())
-                    .updatedAt(course.getUpdatedAt())
-                    .chaptersCount(Optional.ofNullable(course.getChapters())
-                            .map(List::size)
-                            .orElse(0))
-                    .ownerId(course.getUser().getId())
-                    .build();
-
+            CourseSearchFilter filter = buildFilter(search, tags, null, null, loggedInUserId);
+            return findPage(filter, page, size, sortBy);
         } catch (Exception e) {
-            log.error("Error mapping course data: {}", e.getMessage());
-            throw new ServiceException("Error processing course data", e);
+            log.error("Unexpected error in searchCoursesWithTags: {}", e.getMessage());
+            throw e;
         }
     }
 
-    @Cacheable(value = "ownerProfiles", key = "#profile.id")
-    public OwnerDataDTO mapToOwnerDataDTO(UserProfileEntity profile) {
-        if (profile == null) {
+    @Transactional
+    public List<String> searchTags(String search, int limit) {
+        // Słownik tagów w pamięci; zapytanie do bazy tylko gdy słownik nie jest załadowany
+        if (courseTagDictionary.isReady()) {
+            return courseTagDictionary.complete(search, limit).stream()
+                    .map(CourseTagDictionary.TagCount::tag)
+                    .collect(Collectors.toList());
+        }
+        String prefix = CourseSearchRepository.escapeLike(CourseTagDictionary.normalizePrefix(search));
+        return courseRepository.searchTags(prefix, courseTagDictionary.resultSize(limit));
+    }
+
+    // Właściciele całej strony ładowani zbiorczo zamiast zapytania na każdy kurs
+    private List<CourseShopResponseDTO> mapToCourseShopResponseDTOs(List<CourseCard> courses) {
+        Map<Long, OwnerDataDTO> owners = ownerCardService.getOwners(courses.stream()
+                .map(CourseCard::ownerId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        return courses.stream()
+                .map(course -> CourseShopResponseDTO.builder()
+                        .courseData(mapToCourseDataDTO(course))
+                        .ownerData(owners.get(course.ownerId()))
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private CourseDataDTO mapToCourseDataDTO(CourseCard course) {
+        if (course == null) {
             return null;
         }
 
         try {
-            Map<String, Object> pictureData = Optional.ofNullable(profile.getPicture())
-                    .map(picture -> {
-                        Map<String, Object> data = new HashMap<>();
-                        data.put("data", picture);
-                        data.put("mimeType", profile.getPictureMimeType());
-                        return data;
-                    })
-                    .orElse(null);
-
-            Set<String> userRoles = roleService.getUserRoles(profile.getUserId())
-                    .stream()
-                    .map(Enum::name)
-                    .collect(Collectors.toSet());
-
-            return OwnerDataDTO.builder()
-                    .id(profile.getUserId())
-                    .fullName(profile.getFullName())
-                    .userId(profile.getUserId())
-                    .description(profile.getDescription())
-                    .createdAt(profile.getCreatedAt())
-                    .picture(pictureData)
-                    .badgesVisible(profile.getBadgesVisible())
-                    .roles(userRoles)
+            return CourseDataDTO.builder()
+                    .id(course.id())
+                    .name(course.name())
+                    .bannerUrl(course.bannerUrl())
+                    .price(course.price())
+                    .duration(course.duration())
+                    .tags(course.tags())
+                    .review(course.review())
+                    .reviewNumber(course.reviewNumber())
+                    .description(course.description())
+                    .createdAt(course.createdAt())
+                    .updatedAt(course.updatedAt())
+                    .chaptersCount(course.chaptersCount() != null ? course.chaptersCount().intValue() : 0)
+                    .ownerId(course.ownerId())
                     .build();
 
         } catch (Exception e) {
-            log.error("Error mapping owner data: {}", e.getMessage());
-            return null;  // Return null instead of throwing to allow partial results
+            log.error("Error mapping course data: {}", e.getMessage());
+            throw new ServiceException("Error processing course data", e);
         }
     }
 
+    public MediaRef getCourseBanner(Long courseId) {
+        return courseRepository.findBannerById(courseId)
+                .filter(banner -> banner.mediaId() != null)
+                .orElseThrow(() -> new EntityNotFoundException("Course banner not found"));
+    }
 
     public List<CourseShopResponseDTO> getAll() {
-        return courseRepository.findAll().stream()
-                .map(this::mapToCourseShopResponseDTO)
-                .collect(Collectors.toList());
+        return mapToCourseShopResponseDTOs(courseRepository.findAllCards());
     }
 
     private void validateSearchParams(int page, int size) {
@@ -312,25 +390,21 @@ public class CourseShopService {
                 .toList();
 
         CourseShopDetailsDTO courseData = mapToCourseShopDetailsDTO(course, loggedInUserId, chapters);
-        UserProfileEntity ownerProfile = userProfileRepository.findByUserId(course.getUser().getId())
+        OwnerDataDTO ownerData = ownerCardService.getOwner(course.getUser().getId())
                 .orElseThrow(() -> new EntityNotFoundException("Course owner profile not found"));
 
         return CourseShopDetailsResponseDTO.builder()
                 .courseData(courseData)
-                .ownerData(mapToOwnerDataDTO(ownerProfile))
+                .ownerData(ownerData)
                 .build();
     }
 
 
     private CourseShopDetailsDTO mapToCourseShopDetailsDTO(CourseEntity course, Long loggedInUserId, List<ChapterShortDTO> chapters) {
-        Map<String, Object> bannerData = new HashMap<>();
-        bannerData.put("data", course.getBanner());
-        bannerData.put("mimeType", course.getMimeType());
-
         return CourseShopDetailsDTO.builder()
                 .id(course.getId())
                 .name(course.getName())
-                .banner(bannerData)
+                .bannerUrl(MediaService.bannerUrl(course.getId(), course.getBannerMediaId(), ImageVariant.FULL))
                 .price(course.getPrice())
                 .duration(course.getDuration())
                 .tags(course.getTags())
@@ -367,13 +441,19 @@ public class CourseShopService {
         return CourseRelationshipType.AVAILABLE;
     }
 
-    @Cacheable(key = "'best_courses_' + #loggedInUserId")
     @Transactional(readOnly = true)
     public List<CourseShopResponseDTO> getBestCourses(Long loggedInUserId) {
         try {
-            List<CourseEntity> bestCourses = courseRepository.findBestCourses(loggedInUserId);
-            return bestCourses.stream()
-                    .map(this::mapToCourseShopResponseDTO)
+            if (!bestCoursesLeaderboard.isReady()) {
+                List<Long> bestCourseIds = courseRepository.findBestCourses(loggedInUserId);
+                return mapToCourseShopResponseDTOs(findCardsInOrder(bestCourseIds));
+            }
+
+            // Wspólny ranking w pamięci; użytkownikowi pomijamy tylko jego własne i kupione kursy
+            UserCourseSet excludedCourses = userCourseSetCache.get(loggedInUserId);
+            return currentBestCourses().stream()
+                    .filter(course -> !excludedCourses.contains(course.getCourseData().getId()))
+                    .limit(BEST_COURSES_LIMIT)
                     .collect(Collectors.toList());
         } catch (Exception e) {
             log.error("Error while fetching best courses: {}", e.getMessage());
@@ -381,6 +461,22 @@ public class CourseShopService {
         }
     }
 
+    // Karty rankingu uzupełniane raz na wersję migawki, kolejne odczyty nie dotykają bazy
+    private List<CourseShopResponseDTO> currentBestCourses() {
+        BestCoursesLeaderboard.Snapshot snapshot = bestCoursesLeaderboard.snapshot();
+        HydratedBestCourses current = hydratedBestCourses;
+        if (current != null && current.version() == snapshot.version()) {
+            return current.courses();
+        }
+
+        List<CourseShopResponseDTO> courses = List.copyOf(mapToCourseShopResponseDTOs(findCardsInOrder(snapshot.courseIds())));
+        hydratedBestCourses = new HydratedBestCourses(snapshot.version(), courses);
+        return courses;
+    }
+
+    private record HydratedBestCourses(long version, List<CourseShopResponseDTO> courses) {
+    }
+
     @CacheEvict(value = "courses", allEntries = true)
     public void evictBestCoursesCache(Long userId) {
         // Cache zostanie automatycznie usunięty przez adnotację @CacheEvict
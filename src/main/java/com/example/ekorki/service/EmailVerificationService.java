@@ -14,7 +14,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import java.util.Optional;
 
@@ -36,7 +35,7 @@ public class EmailVerificationService {
 	@Autowired
 	private final RoleService roleService;
 
-	private final BCryptPasswordEncoder encoder;
+	private final PasswordHashingService passwordHashingService;
 
 
 	@Transactional
@@ -135,7 +134,7 @@ public class EmailVerificationService {
 				throw new AccessDeniedException("You do not have permission to change this password");
 			}
 
-			userEntity.setPassword(encoder.encode(newPassword));
+			userEntity.setPassword(passwordHashingService.encode(newPassword, PasswordHashingService.Operation.PASSWORD_CHANGE));
 			userRepository.save(userEntity);
 			verificationTokenService.deleteToken(code);
 			return true;
@@ -1,93 +1,158 @@
 package com.example.ekorki.service;
 
+import com.example.ekorki.entity.UserEntity;
+import com.example.ekorki.model.AccessTokenClaims;
+import com.example.ekorki.model.UserPrincipals;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.KeyGenerator;
-import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
+// Parser budowany raz - jest niezmienny i bezpieczny wątkowo, klucz wybiera po kid z nagłówka tokenu. Token jest weryfikowany najwyżej raz
+// na żądanie, a zweryfikowane claimy trzymamy w ograniczonym cache do wygaśnięcia tokenu, kluczem jest
+// skrót tokenu. Kolejne żądania z tym samym tokenem kosztują SHA-256 zamiast HMAC i parsowania JSON.
 @Service
 public class JWTService {
-
-    private String SECRET_KEY = "";
-
-    @Value("${jwt.accessTokenExpiration}")
-    private int accessTokenExpirationTime;
-
-
-
-    public JWTService(){
-        try {
-            KeyGenerator generator = KeyGenerator.getInstance("HmacSHA256");
-            SecretKey key = generator.generateKey();
-            SECRET_KEY = Base64.getEncoder().encodeToString(key.getEncoded());
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String ROLES_CLAIM = "roles";
+    private static final String VERSION_CLAIM = "ver";
+
+    private final JwtKeyRing keyRing;
+    private final JwtParser parser;
+    private final TokenVersionService tokenVersionService;
+    private final Cache<String, AccessTokenClaims> verifiedTokens;
+
+    private final long accessTokenExpirationTime;
+
+    public JWTService(JwtKeyRing keyRing,
+                      TokenVersionService tokenVersionService,
+                      @Value("${jwt.accessTokenExpiration}") long accessTokenExpirationTime,
+                      @Value("${jwt.verified-token-cache.size:10000}") long verifiedTokenCacheSize){
+        this.keyRing = keyRing;
+        this.tokenVersionService = tokenVersionService;
+        this.accessTokenExpirationTime = accessTokenExpirationTime;
+        this.parser = Jwts.parserBuilder().setSigningKeyResolver(new SigningKeyResolverAdapter() {
+            // Token bez kid albo z kluczem spoza pierścienia (usuniętym lub obcym) jest nieważny
+            @Override
+            public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                return keyRing.find(header.getKeyId())
+                        .map(JwtKeyRing.SigningKey::key)
+                        .orElseThrow(() -> new UnsupportedJwtException("Unknown signing key"));
+            }
+        }).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedTokenCacheSize)
+                // Sprzątanie na wątku żądania - rozmiar 0 wyłącza cache od razu, bez wpisów czekających na wątek w tle
+                .executor(Runnable::run)
+                .expireAfter(new Expiry<String, AccessTokenClaims>() {
+                    @Override
+                    public long expireAfterCreate(String digest, AccessTokenClaims claims, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, claims.expiresAt() - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String digest, AccessTokenClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String digest, AccessTokenClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
-    public String generateAccessToken(String userEmail){
+    // Id, role i wersja w tokenie - filtr buduje z nich użytkownika bez ładowania go z bazy
+    public String generateAccessToken(UserEntity user){
+        JwtKeyRing.SigningKey signingKey = keyRing.current();
         Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, user.getId());
+        claims.put(ROLES_CLAIM, user.getRoles().stream().map(role -> role.getRole().name()).toList());
+        claims.put(VERSION_CLAIM, user.getTokenVersion());
 
         return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKey.id())
                 .setClaims(claims)
-                .setSubject(userEmail)
+                .setSubject(user.getEmail())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + accessTokenExpirationTime))
-                .signWith(getKey())
+                .signWith(signingKey.key())
                 .compact();
 
     }
 
-    private Key getKey(){
-        byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
-        return Keys.hmacShaKeyFor(keyBytes);
+    // Użytkownik z podpisanego tokenu; pusty dla tokenu nieważnego, wygasłego, wydanego przed zmianą ról
+    // albo starego, jeszcze bez claimów - klient odświeża wtedy token przez refresh token
+    public Optional<UserPrincipals> authenticate(String token) {
+        return verify(token).map(claims -> new UserPrincipals(claims.userId(), claims.email(), claims.roles()));
     }
 
+    public Optional<AccessTokenClaims> verify(String token) {
+        String digest = digest(token);
+        AccessTokenClaims claims = verifiedTokens.getIfPresent(digest);
+        if (claims == null) {
+            // Nieważnych tokenów nie zapamiętujemy - losowe tokeny nie wypchną z cache prawdziwych
+            claims = parse(token);
+            if (claims == null) {
+                return Optional.empty();
+            }
+            verifiedTokens.put(digest, claims);
+        }
 
-    public String extractUsername(String token){
-        //subject email
-        return extractClaim(token, Claims::getSubject);
-    }
-
-    public boolean validateToken(String token, UserDetails userDetails) {
-        final String userName = extractUsername(token);
-        return (userName.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        // Wygaśnięcie i wersję sprawdzamy przy każdym żądaniu - wersja mogła się zmienić po zapisaniu w cache
+        if (claims.expiresAt() <= System.currentTimeMillis()
+                || !tokenVersionService.isCurrent(claims.userId(), claims.version())) {
+            return Optional.empty();
+        }
+        return Optional.of(claims);
     }
 
+    private AccessTokenClaims parse(String token) {
+        Claims claims;
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
 
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        Number version = claims.get(VERSION_CLAIM, Number.class);
+        List<?> roles = claims.get(ROLES_CLAIM, List.class);
+        if (userId == null || version == null || roles == null || claims.getExpiration() == null) {
+            return null;
+        }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
-
-    public Claims extractAllClaims(String token){
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return new AccessTokenClaims(userId.longValue(), claims.getSubject(),
+                roles.stream().map(String::valueOf).toList(), version.intValue(), claims.getExpiration().getTime());
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 }
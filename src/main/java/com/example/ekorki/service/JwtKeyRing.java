@@ -0,0 +1,253 @@
+package com.example.ekorki.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Klucze podpisujące tokeny dostępu. Każdy ma id wpisywane w nagłówek tokenu (kid): podpisujemy bieżącym,
+// a weryfikujemy każdym, którym mógł zostać podpisany wciąż ważny token. Źródła, od najważniejszego:
+// plik kluczy (współdzielony przez instancje, z automatyczną rotacją), lista jwt.keys lub jwt.secret
+// z konfiguracji, a gdy nic nie ustawiono - losowy klucz jak dotąd (restart wylogowuje wszystkich).
+@Component
+@Slf4j
+public class JwtKeyRing {
+    private static final String ALGORITHM = "HmacSHA256";
+
+    public record SigningKey(String id, SecretKey key, Instant createdAt) {
+    }
+
+    // Niezmienna migawka - podmieniana w całości po wczytaniu pliku
+    private record Ring(SigningKey current, Map<String, SigningKey> byId) {
+    }
+
+    private final Path keyFile;
+    private final Duration rotationInterval;
+    private final Duration activationDelay;
+    private final Duration tokenLifetime;
+    private volatile Ring ring;
+    private ScheduledExecutorService scheduler;
+
+    public JwtKeyRing(@Value("${jwt.secret:}") String secret,
+                      @Value("${jwt.keys:}") List<String> keys,
+                      @Value("${jwt.key-file:}") String keyFile,
+                      @Value("${jwt.key-rotation.interval:7d}") Duration rotationInterval,
+                      @Value("${jwt.key-rotation.activation-delay:5m}") Duration activationDelay,
+                      @Value("${jwt.key-rotation.reload-interval:1m}") Duration reloadInterval,
+                      @Value("${jwt.accessTokenExpiration}") long accessTokenExpirationTime) throws IOException {
+        this.keyFile = keyFile.isBlank() ? null : Path.of(keyFile).toAbsolutePath().normalize();
+        this.rotationInterval = rotationInterval;
+        this.activationDelay = activationDelay;
+        this.tokenLifetime = Duration.ofMillis(accessTokenExpirationTime);
+
+        if (this.keyFile != null) {
+            rotateIfDue();
+            // Opóźnienie aktywacji musi być dłuższe niż okres przeładowania - inaczej instancja mogłaby
+            // dostać token podpisany kluczem, którego jeszcze nie wczytała
+            if (activationDelay.compareTo(reloadInterval) <= 0) {
+                log.warn("jwt.key-rotation.activation-delay should be longer than the reload interval");
+            }
+            scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("jwt-key-rotation").factory());
+            scheduler.scheduleWithFixedDelay(this::refresh, reloadInterval.toMillis(), reloadInterval.toMillis(), TimeUnit.MILLISECONDS);
+            log.info("JWT key ring loaded from {} with {} keys", this.keyFile, ring.byId().size());
+        } else if (!keys.isEmpty()) {
+            ring = fromConfiguration(keys);
+        } else if (!secret.isBlank()) {
+            byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+            SigningKey key = new SigningKey(derivedId(keyBytes), hmacKey(keyBytes), Instant.EPOCH);
+            ring = new Ring(key, Map.of(key.id(), key));
+        } else {
+            log.warn("No jwt.secret, jwt.keys or jwt.key-file set, access tokens will not survive a restart");
+            SigningKey key = generate(Instant.EPOCH);
+            ring = new Ring(key, Map.of(key.id(), key));
+        }
+    }
+
+    public SigningKey current() {
+        return ring.current();
+    }
+
+    public Optional<SigningKey> find(String keyId) {
+        return Optional.ofNullable(keyId != null ? ring.byId().get(keyId) : null);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void refresh() {
+        try {
+            rotateIfDue();
+        } catch (Exception e) {
+            // Zostajemy przy poprzedniej migawce - wciąż poprawnie podpisuje i weryfikuje
+            log.error("Failed to refresh JWT key ring from {}: {}", keyFile, e.getMessage());
+        }
+    }
+
+    // Nowy klucz dopisujemy z wyprzedzeniem (activation-delay), żeby pozostałe instancje zdążyły go wczytać,
+    // zanim ktokolwiek zacznie nim podpisywać. Stary klucz usuwamy dopiero, gdy wygasły podpisane nim tokeny.
+    private void rotateIfDue() throws IOException {
+        Instant now = Instant.now();
+        List<SigningKey> keys = readKeyFile();
+        if (!keys.isEmpty() && !rotationDue(keys, now)) {
+            ring = toRing(keys, now);
+            return;
+        }
+
+        Files.createDirectories(keyFile.getParent());
+        Path lockFile = keyFile.resolveSibling(keyFile.getFileName() + ".lock");
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            // Inna instancja mogła obrócić klucze, zanim dostaliśmy blokadę
+            keys = new ArrayList<>(readKeyFile());
+            if (keys.isEmpty()) {
+                // Pierwszy klucz nie ma poprzednika, którego tokeny trzeba honorować - aktywny od razu
+                keys.add(generate(now.minus(activationDelay)));
+                writeKeyFile(keys);
+            } else if (rotationDue(keys, now)) {
+                keys.add(generate(now));
+                keys = prune(keys, now);
+                writeKeyFile(keys);
+                log.info("Rotated JWT signing key, {} keys in ring", keys.size());
+            }
+        }
+        ring = toRing(keys, now);
+    }
+
+    private boolean rotationDue(List<SigningKey> keys, Instant now) {
+        return !newest(keys).createdAt().plus(rotationInterval).isAfter(now);
+    }
+
+    private Ring toRing(List<SigningKey> keys, Instant now) {
+        SigningKey current = keys.stream()
+                .filter(key -> !key.createdAt().plus(activationDelay).isAfter(now))
+                .max(Comparator.comparing(SigningKey::createdAt))
+                .orElseGet(() -> newest(keys));
+        Map<String, SigningKey> byId = new HashMap<>();
+        keys.forEach(key -> byId.put(key.id(), key));
+        return new Ring(current, Map.copyOf(byId));
+    }
+
+    // Klucz jest potrzebny, dopóki jego następca nie podpisuje dłużej niż czas życia tokenu
+    private List<SigningKey> prune(List<SigningKey> keys, Instant now) {
+        List<SigningKey> sorted = keys.stream().sorted(Comparator.comparing(SigningKey::createdAt)).toList();
+        List<SigningKey> kept = new ArrayList<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            boolean last = i == sorted.size() - 1;
+            if (last || sorted.get(i + 1).createdAt().plus(activationDelay).plus(tokenLifetime).isAfter(now)) {
+                kept.add(sorted.get(i));
+            }
+        }
+        return kept;
+    }
+
+    // Wiersz pliku: "kid utworzony(epoch s) klucz(base64)"; puste wiersze i # są pomijane
+    private List<SigningKey> readKeyFile() throws IOException {
+        if (!Files.exists(keyFile)) {
+            return List.of();
+        }
+
+        List<SigningKey> keys = new ArrayList<>();
+        for (String line : Files.readAllLines(keyFile, StandardCharsets.UTF_8)) {
+            String trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] fields = trimmed.split("\\s+");
+            if (fields.length != 3) {
+                throw new IOException("Malformed line in JWT key file " + keyFile);
+            }
+            keys.add(new SigningKey(fields[0], hmacKey(Base64.getDecoder().decode(fields[2])),
+                    Instant.ofEpochSecond(Long.parseLong(fields[1]))));
+        }
+        return keys;
+    }
+
+    // Zapis obok i atomowa podmiana - inne instancje nigdy nie czytają połowy pliku
+    private void writeKeyFile(List<SigningKey> keys) throws IOException {
+        StringBuilder content = new StringBuilder("# kid created-at(epoch s) key(base64) - managed by the application\n");
+        for (SigningKey key : keys) {
+            content.append(key.id()).append(' ')
+                    .append(key.createdAt().getEpochSecond()).append(' ')
+                    .append(Base64.getEncoder().encodeToString(key.key().getEncoded())).append('\n');
+        }
+
+        Path temp = Files.createTempFile(keyFile.getParent(), keyFile.getFileName().toString(), ".tmp");
+        try {
+            try {
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException ignored) {
+            }
+            Files.writeString(temp, content, StandardCharsets.UTF_8);
+            Files.move(temp, keyFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // jwt.keys=kid1:sekret1,kid2:sekret2 - pierwszy podpisuje, pozostałe tylko weryfikują (np. po ręcznej zmianie sekretu)
+    private static Ring fromConfiguration(List<String> keys) {
+        Map<String, SigningKey> byId = new LinkedHashMap<>();
+        for (String entry : keys) {
+            int separator = entry.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("jwt.keys entries must have the form kid:secret");
+            }
+            String id = entry.substring(0, separator).strip();
+            byId.put(id, new SigningKey(id, hmacKey(entry.substring(separator + 1).strip().getBytes(StandardCharsets.UTF_8)), Instant.EPOCH));
+        }
+        return new Ring(byId.values().iterator().next(), Map.copyOf(byId));
+    }
+
+    private static SigningKey newest(List<SigningKey> keys) {
+        return keys.stream().max(Comparator.comparing(SigningKey::createdAt)).orElseThrow();
+    }
+
+    private static SigningKey generate(Instant createdAt) {
+        try {
+            byte[] keyBytes = KeyGenerator.getInstance(ALGORITHM).generateKey().getEncoded();
+            return new SigningKey(derivedId(keyBytes), hmacKey(keyBytes), createdAt);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC not available", e);
+        }
+    }
+
+    // HS256 wymaga co najmniej 256 bitów - krótszy sekret to błąd konfiguracji, nie powód do cichego osłabienia
+    private static SecretKey hmacKey(byte[] keyBytes) {
+        if (keyBytes.length < 32) {
+            throw new IllegalArgumentException("JWT signing keys must have at least 256 bits");
+        }
+        return new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    // Id ze skrótu klucza - te same sekrety dają te same id na każdej instancji
+    private static String derivedId(byte[] keyBytes) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(keyBytes);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 9));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
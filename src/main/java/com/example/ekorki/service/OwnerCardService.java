@@ -0,0 +1,98 @@
+package com.example.ekorki.service;
+
+import com.example.ekorki.dto.courseShop.OwnerDataDTO;
+import com.example.ekorki.entity.RoleEntity;
+import com.example.ekorki.entity.UserProfileEntity;
+import com.example.ekorki.repository.RoleRepository;
+import com.example.ekorki.repository.UserProfileRepository;
+import com.example.ekorki.service.media.ImageVariant;
+import com.example.ekorki.service.media.MediaService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Dane właścicieli kursów dla kart sklepu - ładowane zbiorczo dla całej strony i cache'owane po id użytkownika
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OwnerCardService {
+    public static final String CACHE_NAME = "ownerCards";
+
+    private final UserProfileRepository userProfileRepository;
+    private final RoleRepository roleRepository;
+    private final CacheManager cacheManager;
+
+    @Transactional(readOnly = true)
+    public Map<Long, OwnerDataDTO> getOwners(Collection<Long> userIds) {
+        Map<Long, OwnerDataDTO> owners = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+
+        for (Long userId : new HashSet<>(userIds)) {
+            OwnerDataDTO cached = cache != null ? cache.get(userId, OwnerDataDTO.class) : null;
+            if (cached != null) {
+                owners.put(userId, cached);
+            } else {
+                missing.add(userId);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return owners;
+        }
+
+        // Jedno zapytanie o profile i jedno o role dla wszystkich brakujących właścicieli
+        List<UserProfileEntity> profiles = userProfileRepository.findByUserIdIn(missing);
+        Map<Long, Set<String>> rolesByUserId = roleRepository.findByUserIdIn(missing).stream()
+                .collect(Collectors.groupingBy(
+                        role -> role.getUser().getId(),
+                        Collectors.mapping(role -> role.getRole().name(), Collectors.toSet())));
+
+        for (UserProfileEntity profile : profiles) {
+            OwnerDataDTO owner = mapToOwnerDataDTO(profile,
+                    rolesByUserId.getOrDefault(profile.getUserId(), Collections.emptySet()));
+            owners.put(profile.getUserId(), owner);
+            if (cache != null) {
+                cache.put(profile.getUserId(), owner);
+            }
+        }
+
+        missing.stream()
+                .filter(userId -> !owners.containsKey(userId))
+                .forEach(userId -> log.warn("Owner profile not found for user ID: {}", userId));
+
+        return owners;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<OwnerDataDTO> getOwner(Long userId) {
+        return Optional.ofNullable(getOwners(List.of(userId)).get(userId));
+    }
+
+    // Wywoływane po zmianie profilu lub ról użytkownika
+    public void evict(Long userId) {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache != null) {
+            cache.evict(userId);
+        }
+    }
+
+    private OwnerDataDTO mapToOwnerDataDTO(UserProfileEntity profile, Set<String> roles) {
+        return OwnerDataDTO.builder()
+                .id(profile.getUserId())
+                .fullName(profile.getFullName())
+                .userId(profile.getUserId())
+                .description(profile.getDescription())
+                .createdAt(profile.getCreatedAt())
+                .pictureUrl(MediaService.variantUrl(profile.getPictureMediaId(), ImageVariant.THUMB))
+                .badgesVisible(profile.getBadgesVisible())
+                .roles(roles)
+                .build();
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.ekorki.service;
+
+import com.example.ekorki.entity.UserEntity;
+import com.example.ekorki.exception.TooManyRequestsException;
+import com.example.ekorki.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// BCrypt liczony na osobnej puli o stałej liczbie wątków zamiast na wątkach Tomcata - fala logowań zajmuje
+// najwyżej tyle rdzeni, ile ma pula, a odczyty katalogu nadal mają CPU. Kolejka jest krótka i priorytetowa
+// (logowanie przed zmianą hasła, rejestracją i przehaszowaniem); gdy jest pełna, żądanie dostaje od razu 429.
+// Krótka także dlatego, że czekające logowanie trzyma już połączenie z bazą.
+@Service
+@Slf4j
+public class PasswordHashingService implements PasswordEncoder {
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+
+    // Kolejność to priorytet w kolejce
+    public enum Operation {
+        LOGIN, PASSWORD_CHANGE, REGISTRATION, REHASH
+    }
+
+    private final BCryptPasswordEncoder encoder;
+    private final UserRepository userRepository;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+    // Zadania w kolejce i w trakcie liczenia razem - limit sprawdzany przed dodaniem do kolejki
+    private final Semaphore capacity;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Map<Operation, Timer> waitTimers = new EnumMap<>(Operation.class);
+    private final Map<Operation, Timer> hashTimers = new EnumMap<>(Operation.class);
+    private final Map<Operation, Counter> rejections = new EnumMap<>(Operation.class);
+
+    public PasswordHashingService(BCryptPasswordEncoder encoder,
+                                  UserRepository userRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${security.password.bcrypt-strength:14}") int strength,
+                                  @Value("${security.password.hashing.threads:0}") int threads,
+                                  @Value("${security.password.hashing.queue-capacity:0}") int queueCapacity) {
+        this.encoder = encoder;
+        this.userRepository = userRepository;
+        this.strength = strength;
+
+        // Domyślnie połowa rdzeni - druga połowa zostaje dla pozostałego ruchu
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.capacity = new Semaphore(poolSize + (queueCapacity > 0 ? queueCapacity : poolSize * 2));
+        ThreadFactory threadFactory = Thread.ofPlatform().name("password-hashing-", 0).daemon().factory();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), threadFactory);
+
+        Gauge.builder("password.hashing.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Password hashing tasks waiting for a thread")
+                .register(meterRegistry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+        for (Operation operation : Operation.values()) {
+            String tag = operation.name().toLowerCase();
+            waitTimers.put(operation, Timer.builder("password.hashing.wait")
+                    .description("Time a password hashing task spent in the queue")
+                    .tag("operation", tag)
+                    .register(meterRegistry));
+            hashTimers.put(operation, Timer.builder("password.hashing.duration")
+                    .tag("operation", tag)
+                    .register(meterRegistry));
+            rejections.put(operation, Counter.builder("password.hashing.rejected")
+                    .tag("operation", tag)
+                    .register(meterRegistry));
+        }
+    }
+
+    // Używane przez DaoAuthenticationProvider przy logowaniu
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return encode(rawPassword, Operation.LOGIN);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return await(submit(Operation.LOGIN, () -> encoder.matches(rawPassword, encodedPassword)));
+    }
+
+    public String encode(CharSequence rawPassword, Operation operation) {
+        return await(submit(operation, () -> encoder.encode(rawPassword)));
+    }
+
+    // Po udanym logowaniu: hasło zapisane z innym kosztem niż skonfigurowany liczymy od nowa w tle,
+    // z najniższym priorytetem. Przy pełnej kolejce pomijamy - spróbujemy przy następnym logowaniu.
+    public void rehashIfNeeded(UserEntity user, CharSequence rawPassword) {
+        String encodedPassword = user.getPassword();
+        if (!needsRehash(encodedPassword)) {
+            return;
+        }
+
+        try {
+            submit(Operation.REHASH, () -> {
+                // Warunek na stary skrót - równoległa zmiana hasła nie zostanie nadpisana
+                userRepository.updatePasswordIfUnchanged(user.getId(), encodedPassword, encoder.encode(rawPassword));
+                return null;
+            });
+        } catch (TooManyRequestsException e) {
+            log.debug("Skipped password rehash for user {}, hashing queue full", user.getId());
+        }
+    }
+
+    public boolean needsRehash(String encodedPassword) {
+        Matcher cost = encodedPassword != null ? BCRYPT_COST.matcher(encodedPassword) : null;
+        return cost != null && cost.find() && Integer.parseInt(cost.group(1)) != strength;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> HashingTask<T> submit(Operation operation, Callable<T> work) {
+        if (!capacity.tryAcquire()) {
+            rejections.get(operation).increment();
+            throw new TooManyRequestsException("Too many login attempts in progress, please try again in a moment");
+        }
+
+        long queuedAt = System.nanoTime();
+        HashingTask<T> task = new HashingTask<>(operation, sequence.getAndIncrement(), () -> {
+            try {
+                waitTimers.get(operation).record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                return hashTimers.get(operation).recordCallable(work);
+            } finally {
+                capacity.release();
+            }
+        });
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            capacity.release();
+            throw e;
+        }
+        return task;
+    }
+
+    private static <T> T await(Future<T> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    // PriorityBlockingQueue wymaga porównywalnych zadań - stąd execute z własnym FutureTask zamiast submit
+    private static final class HashingTask<T> extends FutureTask<T> implements Comparable<HashingTask<?>> {
+        private final Operation operation;
+        private final long sequence;
+
+        private HashingTask(Operation operation, long sequence, Callable<T> work) {
+            super(work);
+            this.operation = operation;
+            this.sequence = sequence;
+        }
+
+        // W obrębie jednego priorytetu kolejność zgłoszenia
+        @Override
+        public int compareTo(HashingTask<?> other) {
+            int byPriority = operation.compareTo(other.operation);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.ekorki.service;
+
+import com.example.ekorki.entity.UserEntity;
+import com.example.ekorki.model.TokenVersion;
+import com.example.ekorki.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Unieważnianie tokenów dostępu bez zapytań przy każdym żądaniu. Token niesie wersję użytkownika z chwili
+// wydania; zmiana ról lub adresu podbija wersję w bazie, a po commicie także w mapie w pamięci tej instancji.
+// Pozostałe instancje dociągają zmiany z bazy co refresh-interval - tyle może trwać, zanim token unieważniony
+// na innej instancji zostanie odrzucony także tutaj. Przy starcie wczytujemy tylko użytkowników zmienionych
+// w czasie życia tokenu, więc mapa pozostaje mała.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TokenVersionService {
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<Long, Integer> versions = new ConcurrentHashMap<>();
+
+    // Czas ostatniego udanego odczytu; null - jeszcze nic nie wczytano, więc czytamy cały czas życia tokenu
+    private volatile LocalDateTime loadedUntil;
+
+    @Value("${jwt.accessTokenExpiration}")
+    private long accessTokenExpirationTime;
+
+    // Znacznik zmiany ustawia aplikacja przed commitem, a zegary instancji mogą się rozjeżdżać - okna odczytu
+    // zachodzą na siebie o ten zapas; ponowne zastosowanie tej samej wersji nic nie zmienia
+    @Value("${jwt.token-version.refresh-overlap:PT1M}")
+    private Duration refreshOverlap;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            int count = refresh();
+            log.info("Loaded access token versions for {} users", count);
+        } catch (Exception e) {
+            log.error("Failed to load access token versions, retrying on the next refresh: {}", e.getMessage());
+        }
+    }
+
+    // Zmiany z innych instancji
+    @Scheduled(fixedDelayString = "${jwt.token-version.refresh-interval:PT5S}", initialDelayString = "${jwt.token-version.refresh-interval:PT5S}")
+    public void refreshChanged() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.warn("Failed to refresh access token versions: {}", e.getMessage());
+        }
+    }
+
+    // Wywoływane w transakcji zmieniającej role - tokeny wydane wcześniej przestają działać po commicie
+    public void invalidate(UserEntity user) {
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        user.setTokenVersionChangedAt(LocalDateTime.now());
+        userRepository.save(user);
+        eventPublisher.publishEvent(new TokenVersion(user.getId(), user.getTokenVersion()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInvalidated(TokenVersion version) {
+        apply(version);
+    }
+
+    public boolean isCurrent(Long userId, int version) {
+        Integer current = versions.get(userId);
+        return current == null || version >= current;
+    }
+
+    private synchronized int refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = loadedUntil != null
+                ? loadedUntil.minus(refreshOverlap)
+                : now.minus(Duration.ofMillis(accessTokenExpirationTime));
+        List<TokenVersion> changed = userRepository.findTokenVersionsChangedSince(since);
+        changed.forEach(this::apply);
+        loadedUntil = now;
+        return changed.size();
+    }
+
+    private void apply(TokenVersion version) {
+        versions.merge(version.userId(), version.version(), Math::max);
+    }
+}
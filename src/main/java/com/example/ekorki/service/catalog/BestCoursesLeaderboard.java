@@ -0,0 +1,143 @@
+package com.example.ekorki.service.catalog;
+
+import com.example.ekorki.model.CourseCatalogRow;
+import com.example.ekorki.repository.CourseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+
+// Ranking najlepszych kursów liczony średnią bayesowską: (C * m + ocena * liczba_ocen) / (C + liczba_ocen),
+// gdzie m to średnia ocen wszystkich kursów, a C to waga rozkładu a priori.
+// Kilka ocen 5.0 nie wyprzedzi setek ocen 4.8, bo mała liczba ocen ciągnie wynik do średniej.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BestCoursesLeaderboard {
+    private final CourseRepository courseRepository;
+
+    @Value("${catalog.best.size:50}")
+    private int size;
+
+    @Value("${catalog.best.prior-weight:10}")
+    private double priorWeight;
+
+    // Oceny kursów z co najmniej jedną recenzją oraz sumy potrzebne do średniej globalnej
+    private final Map<Long, Rating> ratings = new HashMap<>();
+    private double ratingSum;
+    private long ratingCount;
+
+    private volatile Snapshot snapshot = new Snapshot(0, List.of());
+    private volatile boolean ready;
+
+    private record Rating(double review, int reviewNumber) {
+    }
+
+    // Niezmienna migawka - wersja zmienia się przy każdym przeliczeniu
+    public record Snapshot(long version, List<Long> courseIds) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        try {
+            ratings.clear();
+            ratingSum = 0;
+            ratingCount = 0;
+            courseRepository.findAllCatalogRows().forEach(this::put);
+            rebuild();
+            ready = true;
+            log.info("Best courses leaderboard loaded from {} rated courses", ratings.size());
+        } catch (Exception e) {
+            ready = false;
+            log.error("Failed to load best courses leaderboard, best courses will be queried from the database: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.reload-interval:PT1M}", initialDelayString = "${catalog.reload-interval:PT1M}")
+    public void reloadIfFailed() {
+        if (!ready) {
+            load();
+        }
+    }
+
+    // ReviewService publikuje zdarzenie po dodaniu, edycji i usunięciu oceny kursu
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCourseChanged(CourseChangedEvent event) {
+        if (!ready) {
+            return;
+        }
+
+        try {
+            Optional<CourseCatalogRow> row = courseRepository.findCatalogRowById(event.courseId());
+            synchronized (this) {
+                remove(event.courseId());
+                row.ifPresent(this::put);
+                rebuild();
+            }
+        } catch (Exception e) {
+            // Do ponownego załadowania ranking idzie z bazy
+            ready = false;
+            log.error("Failed to refresh course {} in best courses leaderboard: {}", event.courseId(), e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    private void put(CourseCatalogRow row) {
+        int reviewNumber = row.reviewNumber() != null ? row.reviewNumber() : 0;
+        if (reviewNumber <= 0 || row.review() == null) {
+            return;
+        }
+
+        Rating rating = new Rating(row.review().doubleValue(), reviewNumber);
+        ratings.put(row.id(), rating);
+        ratingSum += rating.review() * rating.reviewNumber();
+        ratingCount += rating.reviewNumber();
+    }
+
+    private void remove(Long courseId) {
+        Rating previous = ratings.remove(courseId);
+        if (previous != null) {
+            ratingSum -= previous.review() * previous.reviewNumber();
+            ratingCount -= previous.reviewNumber();
+        }
+    }
+
+    // Średnia globalna zmienia się z każdą oceną, więc wyniki liczymy od nowa - kopiec trzyma tylko top K
+    private void rebuild() {
+        double mean = ratingCount > 0 ? ratingSum / ratingCount : 0;
+
+        PriorityQueue<Map.Entry<Long, Double>> top = new PriorityQueue<>(size + 1,
+                Map.Entry.<Long, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+
+        ratings.forEach((courseId, rating) -> {
+            double score = (priorWeight * mean + rating.review() * rating.reviewNumber())
+                    / (priorWeight + rating.reviewNumber());
+            top.add(Map.entry(courseId, score));
+            if (top.size() > size) {
+                top.poll();
+            }
+        });
+
+        List<Long> courseIds = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            courseIds.add(top.poll().getKey());
+        }
+        Collections.reverse(courseIds);
+
+        snapshot = new Snapshot(snapshot.version() + 1, List.copyOf(courseIds));
+    }
+}
@@ -0,0 +1,475 @@
+package com.example.ekorki.service.catalog;
+
+import com.example.ekorki.model.CourseCatalogRow;
+import com.example.ekorki.model.CourseSearchFilter;
+import com.example.ekorki.model.UserCourseSet;
+import com.example.ekorki.repository.CourseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Indeks katalogu kursów w pamięci - filtrowanie, sortowanie i stronicowanie sklepu bez zapytań do bazy.
+// Baza służy tylko do uzupełnienia danych kursów z wybranej strony. Zmiana kursu poprawia migawkę
+// punktowo po commicie (kopia kolumn i przesunięcie jednej pozycji w porządkach), więc odczyty nigdy
+// nie czekają na przebudowę. Po błędzie indeks jest wyłączany i ładowany ponownie w tle.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CourseCatalogIndex {
+    private final CourseRepository courseRepository;
+
+    @Value("${catalog.index.enabled:true}")
+    private boolean enabled;
+
+    private volatile Snapshot snapshot;
+    private volatile boolean ready;
+
+    public record SearchResult(List<Long> ids, long total) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        if (!enabled) {
+            log.info("Course catalog index disabled");
+            return;
+        }
+
+        try {
+            List<CourseCatalogRow> allRows = courseRepository.findAllCatalogRows();
+            snapshot = Snapshot.build(allRows);
+            ready = true;
+            log.info("Course catalog index loaded with {} courses", allRows.size());
+        } catch (Exception e) {
+            ready = false;
+            log.error("Failed to load course catalog index, shop will query the database: {}", e.getMessage());
+        }
+    }
+
+    // Indeks wyłączony po błędzie (także przy starcie) wraca po udanym ponownym załadowaniu
+    @Scheduled(fixedDelayString = "${catalog.reload-interval:PT1M}", initialDelayString = "${catalog.reload-interval:PT1M}")
+    public void reloadIfFailed() {
+        if (enabled && !ready) {
+            load();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onCourseChanged(CourseChangedEvent event) {
+        if (!ready) {
+            return;
+        }
+
+        try {
+            Optional<CourseCatalogRow> row = courseRepository.findCatalogRowById(event.courseId());
+            Snapshot next = row.map(snapshot::with).orElseGet(() -> snapshot.without(event.courseId()));
+            if (next != null) {
+                snapshot = next;
+            } else {
+                load();
+            }
+        } catch (Exception e) {
+            // Nie da się bezpiecznie zaktualizować - do ponownego załadowania sklep pyta bazę
+            ready = false;
+            log.error("Failed to refresh course {} in catalog index: {}", event.courseId(), e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public SearchResult search(CourseSearchFilter filter, String sortBy, long offset, int size,
+                               UserCourseSet excludedCourses) {
+        Snapshot current = snapshot;
+
+        BitSet matches = current.matching(filter);
+        int[] order = current.order(sortBy);
+
+        Long excludedOwnerId = filter.getExcludeOwnedBy();
+        long minPrice = filter.getMinPrice() != null ? toCents(filter.getMinPrice(), RoundingMode.CEILING) : Long.MIN_VALUE;
+        long maxPrice = filter.getMaxPrice() != null ? toCents(filter.getMaxPrice(), RoundingMode.FLOOR) : Long.MAX_VALUE;
+
+        List<Long> pageIds = new ArrayList<>(size);
+        long total = 0;
+
+        for (int position : order) {
+            if (matches != null && !matches.get(position)) {
+                continue;
+            }
+            if (excludedOwnerId != null && current.ownerIds[position] == excludedOwnerId) {
+                continue;
+            }
+            if (current.pricesInCents[position] < minPrice || current.pricesInCents[position] > maxPrice) {
+                continue;
+            }
+            if (excludedCourses.contains(current.ids[position])) {
+                continue;
+            }
+
+            if (total >= offset && pageIds.size() < size) {
+                pageIds.add(current.ids[position]);
+            }
+            total++;
+        }
+
+        return new SearchResult(pageIds, total);
+    }
+
+    private static long toCents(BigDecimal price, RoundingMode roundingMode) {
+        return price.movePointRight(2).setScale(0, roundingMode).longValue();
+    }
+
+    // Niezmienna, kolumnowa migawka katalogu; pozycja w tablicach identyfikuje kurs. Pozycje rosną razem z id,
+    // więc pozycję kursu wyznacza wyszukiwanie binarne. Usunięty kurs znika tylko z porządków sortowania.
+    private static final class Snapshot {
+        private static final String[] NO_TAGS = new String[0];
+
+        private final long[] ids;
+        private final long[] ownerIds;
+        private final long[] createdAt;
+        private final double[] reviews;
+        private final int[] reviewNumbers;
+        private final long[] pricesInCents;
+        private final String[] names;
+        private final String[][] tags;
+        private final BitSet removed;
+        // Wspólne z poprzednią migawką, dopóki zmiana ich nie dotyczy - kopiowane przed modyfikacją
+        private Map<String, int[]> tagPostings;
+        private Map<String, int[]> nameTokenPostings;
+        private int[] byDate;
+        private int[] byReview;
+        private int[] byReviewNumber;
+
+        private Snapshot(int size) {
+            ids = new long[size];
+            ownerIds = new long[size];
+            createdAt = new long[size];
+            reviews = new double[size];
+            reviewNumbers = new int[size];
+            pricesInCents = new long[size];
+            names = new String[size];
+            tags = new String[size][];
+            removed = new BitSet();
+            tagPostings = new HashMap<>();
+            nameTokenPostings = new HashMap<>();
+            byDate = new int[size];
+            byReview = new int[size];
+            byReviewNumber = new int[size];
+        }
+
+        private Snapshot(Snapshot source, int size) {
+            ids = Arrays.copyOf(source.ids, size);
+            ownerIds = Arrays.copyOf(source.ownerIds, size);
+            createdAt = Arrays.copyOf(source.createdAt, size);
+            reviews = Arrays.copyOf(source.reviews, size);
+            reviewNumbers = Arrays.copyOf(source.reviewNumbers, size);
+            pricesInCents = Arrays.copyOf(source.pricesInCents, size);
+            names = Arrays.copyOf(source.names, size);
+            tags = Arrays.copyOf(source.tags, size);
+            removed = (BitSet) source.removed.clone();
+            tagPostings = source.tagPostings;
+            nameTokenPostings = source.nameTokenPostings;
+            byDate = source.byDate;
+            byReview = source.byReview;
+            byReviewNumber = source.byReviewNumber;
+        }
+
+        static Snapshot build(Collection<CourseCatalogRow> source) {
+            List<CourseCatalogRow> sorted = new ArrayList<>(source);
+            sorted.sort(Comparator.comparing(CourseCatalogRow::id));
+
+            Snapshot snapshot = new Snapshot(sorted.size());
+            Map<String, List<Integer>> tags = new HashMap<>();
+            Map<String, List<Integer>> tokens = new HashMap<>();
+
+            for (int i = 0; i < sorted.size(); i++) {
+                snapshot.set(i, sorted.get(i));
+                for (String tag : snapshot.tags[i]) {
+                    tags.computeIfAbsent(tag, key -> new ArrayList<>()).add(i);
+                }
+                for (String token : tokenize(snapshot.names[i])) {
+                    tokens.computeIfAbsent(token, key -> new ArrayList<>()).add(i);
+                }
+            }
+
+            tags.forEach((tag, positions) -> snapshot.tagPostings.put(tag, toArray(positions)));
+            tokens.forEach((token, positions) -> snapshot.nameTokenPostings.put(token, toArray(positions)));
+
+            fillOrder(snapshot.byDate, snapshot::compareByDate);
+            fillOrder(snapshot.byReview, snapshot::compareByReview);
+            fillOrder(snapshot.byReviewNumber, snapshot::compareByReviewNumber);
+
+            return snapshot;
+        }
+
+        // Nowa migawka z dodanym lub zmienionym kursem; null, gdy zmiany nie da się nanieść punktowo
+        // (nowy kurs z id mniejszym niż ostatnie albo kurs przywrócony po usunięciu) - wtedy pełne ładowanie
+        Snapshot with(CourseCatalogRow row) {
+            int position = positionOf(row.id());
+            boolean added = position < 0;
+            if (added && ids.length > 0 && row.id() < ids[ids.length - 1]) {
+                return null;
+            }
+            if (!added && removed.get(position)) {
+                return null;
+            }
+            if (added) {
+                position = ids.length;
+            }
+
+            Snapshot next = new Snapshot(this, added ? ids.length + 1 : ids.length);
+            next.set(position, row);
+
+            String[] previousTags = added ? NO_TAGS : tags[position];
+            List<String> previousTokens = added ? List.of() : tokenize(names[position]);
+            next.tagPostings = updatePostings(tagPostings, List.of(previousTags), List.of(next.tags[position]), position);
+            next.nameTokenPostings = updatePostings(nameTokenPostings, previousTokens, tokenize(next.names[position]), position);
+
+            next.byDate = reposition(byDate, position, added ? null : this::compareByDate, next::compareByDate);
+            next.byReview = reposition(byReview, position, added ? null : this::compareByReview, next::compareByReview);
+            next.byReviewNumber = reposition(byReviewNumber, position, added ? null : this::compareByReviewNumber,
+                    next::compareByReviewNumber);
+            return next;
+        }
+
+        // Usunięty kurs wypada z porządków; gdy martwych pozycji jest dużo, null wymusza pełne ładowanie
+        Snapshot without(Long courseId) {
+            int position = positionOf(courseId);
+            if (position < 0 || removed.get(position)) {
+                return this;
+            }
+
+            Snapshot next = new Snapshot(this, ids.length);
+            next.removed.set(position);
+            if (next.removed.cardinality() > Math.max(16, ids.length / 4)) {
+                return null;
+            }
+            next.byDate = reposition(byDate, position, this::compareByDate, null);
+            next.byReview = reposition(byReview, position, this::compareByReview, null);
+            next.byReviewNumber = reposition(byReviewNumber, position, this::compareByReviewNumber, null);
+            return next;
+        }
+
+        int[] order(String sortBy) {
+            return switch (sortBy) {
+                case "review" -> byReview;
+                case "reviewNumber" -> byReviewNumber;
+                default -> byDate;
+            };
+        }
+
+        private void set(int position, CourseCatalogRow row) {
+            ids[position] = row.id();
+            ownerIds[position] = row.ownerId() != null ? row.ownerId() : -1L;
+            // PostgreSQL przy DESC stawia NULL na początku
+            createdAt[position] = row.createdAt() != null
+                    ? row.createdAt().toInstant(ZoneOffset.UTC).toEpochMilli()
+                    : Long.MAX_VALUE;
+            reviews[position] = row.review() != null ? row.review().doubleValue() : 0;
+            reviewNumbers[position] = row.reviewNumber() != null ? row.reviewNumber() : 0;
+            pricesInCents[position] = row.price() != null
+                    ? row.price().movePointRight(2).longValue()
+                    : 0;
+            names[position] = row.name() != null ? row.name().toLowerCase(Locale.ROOT) : "";
+            tags[position] = row.tags() != null
+                    ? new LinkedHashSet<>(row.tags()).toArray(String[]::new)
+                    : NO_TAGS;
+        }
+
+        private int positionOf(long courseId) {
+            int position = Arrays.binarySearch(ids, courseId);
+            return position >= 0 ? position : -1;
+        }
+
+        // Kolejność malejąca jak w zapytaniach SQL, remisy rozstrzyga wyższe id
+        private int compareByDate(int a, int b) {
+            return compareDesc(Long.compare(createdAt[a], createdAt[b]), a, b);
+        }
+
+        private int compareByReview(int a, int b) {
+            return compareDesc(Double.compare(reviews[a], reviews[b]), a, b);
+        }
+
+        private int compareByReviewNumber(int a, int b) {
+            return compareDesc(Integer.compare(reviewNumbers[a], reviewNumbers[b]), a, b);
+        }
+
+        private int compareDesc(int keyComparison, int a, int b) {
+            if (keyComparison != 0) {
+                return -keyComparison;
+            }
+            return -Long.compare(ids[a], ids[b]);
+        }
+
+        // null oznacza brak filtrów - pasują wszystkie pozycje
+        BitSet matching(CourseSearchFilter filter) {
+            BitSet result = null;
+
+            // Wystarczy jeden z tagów, jak operator && w SQL
+            if (filter.hasTags()) {
+                result = new BitSet(ids.length);
+                for (String tag : filter.getTags()) {
+                    result.or(toBitSet(tagPostings.getOrDefault(tag, new int[0])));
+                }
+            }
+
+            if (filter.hasSearch()) {
+                BitSet byName = matchingName(filter.getSearch().toLowerCase(Locale.ROOT));
+                if (result == null) {
+                    result = byName;
+                } else {
+                    result.and(byName);
+                }
+            }
+
+            return result;
+        }
+
+        // Semantyka jak LOWER(name) LIKE '%search%'; słownik tokenów zawęża kandydatów przed sprawdzeniem nazwy
+        private BitSet matchingName(String search) {
+            BitSet result = new BitSet(ids.length);
+            String longestToken = tokenize(search).stream()
+                    .max(Comparator.comparingInt(String::length))
+                    .orElse(null);
+
+            if (longestToken == null) {
+                for (int i = 0; i < names.length; i++) {
+                    if (names[i].contains(search)) {
+                        result.set(i);
+                    }
+                }
+                return result;
+            }
+
+            nameTokenPostings.forEach((token, positions) -> {
+                if (token.contains(longestToken)) {
+                    for (int position : positions) {
+                        if (!result.get(position) && names[position].contains(search)) {
+                            result.set(position);
+                        }
+                    }
+                }
+            });
+            return result;
+        }
+
+        private static List<String> tokenize(String text) {
+            List<String> tokens = new ArrayList<>();
+            for (String token : text.split("[^\\p{L}\\p{N}]+")) {
+                if (!token.isEmpty()) {
+                    tokens.add(token);
+                }
+            }
+            return tokens;
+        }
+
+        // Kopia mapy tylko wtedy, gdy zbiór kluczy pozycji się zmienił - zmiana oceny nie kopiuje słowników
+        private static Map<String, int[]> updatePostings(Map<String, int[]> postings, Collection<String> previous,
+                                                         Collection<String> current, int position) {
+            Set<String> removedKeys = new HashSet<>(previous);
+            removedKeys.removeAll(current);
+            Set<String> addedKeys = new HashSet<>(current);
+            addedKeys.removeAll(previous);
+            if (removedKeys.isEmpty() && addedKeys.isEmpty()) {
+                return postings;
+            }
+
+            Map<String, int[]> next = new HashMap<>(postings);
+            for (String key : removedKeys) {
+                int[] remaining = Arrays.stream(next.getOrDefault(key, new int[0]))
+                        .filter(value -> value != position)
+                        .toArray();
+                if (remaining.length == 0) {
+                    next.remove(key);
+                } else {
+                    next.put(key, remaining);
+                }
+            }
+            for (String key : addedKeys) {
+                int[] positions = next.getOrDefault(key, new int[0]);
+                int[] extended = Arrays.copyOf(positions, positions.length + 1);
+                extended[positions.length] = position;
+                next.put(key, extended);
+            }
+            return next;
+        }
+
+        // Usuwa pozycję z porządku (wyszukiwanie binarne według starych wartości) i wstawia ją według nowych;
+        // null po którejś stronie oznacza tylko wstawienie albo tylko usunięcie
+        private static int[] reposition(int[] order, int position, PositionComparator previous, PositionComparator current) {
+            int[] result = order;
+            if (previous != null) {
+                int at = binarySearch(result, result.length, position, previous);
+                int[] shrunk = new int[result.length - 1];
+                System.arraycopy(result, 0, shrunk, 0, at);
+                System.arraycopy(result, at + 1, shrunk, at, result.length - at - 1);
+                result = shrunk;
+            }
+            if (current != null) {
+                int at = binarySearch(result, result.length, position, current);
+                int[] grown = new int[result.length + 1];
+                System.arraycopy(result, 0, grown, 0, at);
+                grown[at] = position;
+                System.arraycopy(result, at, grown, at + 1, result.length - at);
+                result = grown;
+            }
+            return result;
+        }
+
+        // Pierwsze miejsce, w którym element nie jest mniejszy od pozycji - porządek jest pełny (remisy po id),
+        // więc dla pozycji obecnej w tablicy to dokładnie jej indeks
+        private static int binarySearch(int[] order, int length, int position, PositionComparator comparator) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (comparator.compare(order[middle], position) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private static void fillOrder(int[] order, PositionComparator comparator) {
+            Integer[] positions = new Integer[order.length];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = i;
+            }
+            Arrays.sort(positions, comparator::compare);
+            for (int i = 0; i < positions.length; i++) {
+                order[i] = positions[i];
+            }
+        }
+
+        private static int[] toArray(List<Integer> positions) {
+            return positions.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private static BitSet toBitSet(int[] positions) {
+            BitSet bitSet = new BitSet();
+            for (int position : positions) {
+                bitSet.set(position);
+            }
+            return bitSet;
+        }
+
+        @FunctionalInterface
+        private interface PositionComparator {
+            int compare(int a, int b);
+        }
+    }
+}
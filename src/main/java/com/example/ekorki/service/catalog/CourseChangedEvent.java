@@ -0,0 +1,5 @@
+package com.example.ekorki.service.catalog;
+
+// Publikowane po zmianie kursu lub jego ocen - indeks katalogu przeładowuje wiersz po commicie
+public record CourseChangedEvent(Long courseId) {
+}
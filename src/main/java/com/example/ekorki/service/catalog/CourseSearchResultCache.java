@@ -0,0 +1,93 @@
+package com.example.ekorki.service.catalog;
+
+import com.example.ekorki.model.CourseSearchFilter;
+import com.example.ekorki.model.UserCourseSet;
+import com.example.ekorki.repository.CourseSearchRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Wspólne dla wszystkich użytkowników okno pierwszych wyników wyszukiwania.
+// Klucz nie zawiera id użytkownika, a fraza jest dowolnym tekstem - cache ma własny limit wpisów i czas życia,
+// niezależnie od profilu i CacheManagera. Klucz zawiera epokę katalogu, zmiana kursu ją podbija.
+@Component
+public class CourseSearchResultCache {
+    private final CourseSearchRepository courseSearchRepository;
+    private final Cache<Key, Window> windows;
+    private final AtomicLong catalogEpoch = new AtomicLong();
+    private final int windowSize;
+
+    public CourseSearchResultCache(CourseSearchRepository courseSearchRepository,
+                                   @Value("${catalog.search.cache-window:200}") int windowSize,
+                                   @Value("${catalog.search.cache-size:2000}") long cacheSize,
+                                   @Value("${catalog.search.cache-ttl:PT10M}") Duration cacheTtl) {
+        this.courseSearchRepository = courseSearchRepository;
+        this.windowSize = windowSize;
+        this.windows = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    public record Window(long[] ids, long total) {
+        // Okno zawiera wszystkie wyniki zapytania
+        public boolean complete() {
+            return ids.length >= total;
+        }
+
+        public long countAmong(UserCourseSet courses) {
+            long count = 0;
+            for (long id : ids) {
+                if (courses.contains(id)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    // Filtr nie może zawierać warunków zależnych od użytkownika
+    public Window get(CourseSearchFilter filter, String sortBy) {
+        return windows.get(key(filter, sortBy), key -> load(filter, sortBy));
+    }
+
+    public int windowSize() {
+        return windowSize;
+    }
+
+    // Zmiana kursu lub jego ocen może wprowadzić kurs do dowolnego zapytania albo przestawić jego kolejność,
+    // więc nie da się wskazać dotkniętych wpisów po id w oknie. Nowa epoka omija stare okna bez czyszczenia
+    // całego cache w jednym kroku - wypadną same przez limit rozmiaru i czas życia.
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCourseChanged(CourseChangedEvent event) {
+        catalogEpoch.incrementAndGet();
+    }
+
+    private Window load(CourseSearchFilter filter, String sortBy) {
+        CourseSearchRepository.SearchPage page = courseSearchRepository.findPage(filter, sortBy, 0, windowSize);
+        return new Window(page.ids().stream().mapToLong(Long::longValue).toArray(), page.total());
+    }
+
+    private record Key(long epoch, String sortBy, String search, List<String> tags, BigDecimal minPrice, BigDecimal maxPrice) {
+    }
+
+    // Wielkość liter frazy, kolejność tagów i skala cen nie zmieniają wyniku zapytania
+    private Key key(CourseSearchFilter filter, String sortBy) {
+        return new Key(
+                catalogEpoch.get(),
+                sortBy,
+                filter.hasSearch() ? filter.getSearch().toLowerCase(Locale.ROOT) : null,
+                filter.hasTags() ? filter.getTags().stream().sorted().toList() : null,
+                filter.getMinPrice() != null ? filter.getMinPrice().stripTrailingZeros() : null,
+                filter.getMaxPrice() != null ? filter.getMaxPrice().stripTrailingZeros() : null);
+    }
+}
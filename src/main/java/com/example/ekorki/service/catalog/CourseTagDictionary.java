@@ -0,0 +1,172 @@
+package com.example.ekorki.service.catalog;
+
+import com.example.ekorki.model.CourseCatalogRow;
+import com.example.ekorki.repository.CourseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+
+// Słownik tagów z liczbą kursów - podpowiedzi po prefiksie bez przeszukiwania tabeli kursów.
+// Liczniki aktualizowane przyrostowo po zmianie kursu; posortowaną migawkę przebudowuje wątek zapisu,
+// i tylko gdy zmienił się zbiór tagów kursu - zmiana oceny jej nie dotyka.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CourseTagDictionary {
+    private final CourseRepository courseRepository;
+
+    @Value("${catalog.tags.max-results:50}")
+    private int maxResults;
+
+    // Tagi każdego kursu - potrzebne, żeby przy zmianie odjąć stare tagi
+    private final Map<Long, Set<String>> tagsByCourse = new HashMap<>();
+    private final Map<String, Integer> courseCounts = new HashMap<>();
+    private volatile Snapshot snapshot = new Snapshot(new String[0], new int[0]);
+    private volatile boolean ready;
+
+    public record TagCount(String tag, int courseCount) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        try {
+            List<CourseCatalogRow> rows = courseRepository.findAllCatalogRows();
+            tagsByCourse.clear();
+            courseCounts.clear();
+            rows.forEach(row -> addCourse(row.id(), row.tags()));
+            snapshot = Snapshot.build(courseCounts);
+            ready = true;
+            log.info("Course tag dictionary loaded with {} tags", courseCounts.size());
+        } catch (Exception e) {
+            ready = false;
+            log.error("Failed to load course tag dictionary, tag search will query the database: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.reload-interval:PT1M}", initialDelayString = "${catalog.reload-interval:PT1M}")
+    public void reloadIfFailed() {
+        if (!ready) {
+            load();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCourseChanged(CourseChangedEvent event) {
+        if (!ready) {
+            return;
+        }
+
+        try {
+            Optional<CourseCatalogRow> row = courseRepository.findCatalogRowById(event.courseId());
+            synchronized (this) {
+                Set<String> previous = tagsByCourse.getOrDefault(event.courseId(), Set.of());
+                removeCourse(event.courseId());
+                row.ifPresent(course -> addCourse(course.id(), course.tags()));
+                if (!previous.equals(tagsByCourse.getOrDefault(event.courseId(), Set.of()))) {
+                    snapshot = Snapshot.build(courseCounts);
+                }
+            }
+        } catch (Exception e) {
+            // Do ponownego załadowania podpowiedzi idą z bazy
+            ready = false;
+            log.error("Failed to refresh tags of course {}: {}", event.courseId(), e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Najpopularniejsze tagi zaczynające się od prefiksu; remisy alfabetycznie
+    public List<TagCount> complete(String prefix, int limit) {
+        Snapshot current = snapshot;
+        int resultSize = resultSize(limit);
+        String normalized = normalizePrefix(prefix);
+
+        int from = current.lowerBound(normalized);
+        int to = current.lowerBound(normalized + Character.MAX_VALUE);
+
+        // Kopiec o rozmiarze limitu - pamięć nie zależy od liczby pasujących tagów
+        PriorityQueue<Integer> top = new PriorityQueue<>(resultSize + 1, current::compareByPopularityAsc);
+        for (int i = from; i < to; i++) {
+            top.add(i);
+            if (top.size() > resultSize) {
+                top.poll();
+            }
+        }
+
+        List<TagCount> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            int position = top.poll();
+            result.add(new TagCount(current.tags[position], current.counts[position]));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    // Wspólne z zapytaniem zastępczym w bazie, żeby odpowiedź nie zależała od stanu słownika
+    public int resultSize(int limit) {
+        return Math.max(1, Math.min(limit, maxResults));
+    }
+
+    public static String normalizePrefix(String prefix) {
+        return prefix != null ? prefix.trim().toLowerCase(Locale.ROOT) : "";
+    }
+
+    private void addCourse(Long courseId, List<String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return;
+        }
+
+        Set<String> normalized = new HashSet<>();
+        for (String tag : tags) {
+            if (tag != null && !tag.isBlank()) {
+                normalized.add(tag.toLowerCase(Locale.ROOT));
+            }
+        }
+        tagsByCourse.put(courseId, normalized);
+        normalized.forEach(tag -> courseCounts.merge(tag, 1, Integer::sum));
+    }
+
+    private void removeCourse(Long courseId) {
+        Set<String> previous = tagsByCourse.remove(courseId);
+        if (previous == null) {
+            return;
+        }
+
+        // Tag bez kursów znika ze słownika
+        previous.forEach(tag -> courseCounts.computeIfPresent(tag, (key, count) -> count > 1 ? count - 1 : null));
+    }
+
+    // Tagi posortowane alfabetycznie - zakres prefiksu wyznacza wyszukiwanie binarne
+    private record Snapshot(String[] tags, int[] counts) {
+
+        static Snapshot build(Map<String, Integer> courseCounts) {
+            String[] tags = courseCounts.keySet().toArray(new String[0]);
+            Arrays.sort(tags);
+            int[] counts = new int[tags.length];
+            for (int i = 0; i < tags.length; i++) {
+                counts[i] = courseCounts.get(tags[i]);
+            }
+            return new Snapshot(tags, counts);
+        }
+
+        int lowerBound(String key) {
+            int position = Arrays.binarySearch(tags, key);
+            return position >= 0 ? position : -position - 1;
+        }
+
+        int compareByPopularityAsc(int a, int b) {
+            int byCount = Integer.compare(counts[a], counts[b]);
+            return byCount != 0 ? byCount : tags[b].compareTo(tags[a]);
+        }
+    }
+}
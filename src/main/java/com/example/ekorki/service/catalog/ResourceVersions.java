@@ -0,0 +1,80 @@
+package com.example.ekorki.service.catalog;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Wersje dokumentów (kurs, profil, zbiór kursów użytkownika) dla nagłówka ETag. Licznik content_version
+// leży w bazie i jest podbijany w tej samej transakcji co zmiana, więc ETag jest wspólny dla wszystkich
+// instancji i przeżywa restart. ETag liczymy jednym zapytaniem po kluczu głównym przed wczytaniem encji
+// i budowaniem DTO - powtórna wizyta z aktualnym If-None-Match kończy się 304 bez reszty pracy.
+@Component
+@RequiredArgsConstructor
+public class ResourceVersions {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${http.catalog.max-age:60s}")
+    private Duration catalogMaxAge;
+
+    // Przed commitem - nowa wersja staje się widoczna razem ze zmianą, którą opisuje
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onCourseChanged(CourseChangedEvent event) {
+        jdbcTemplate.update("UPDATE e_korki.courses SET content_version = content_version + 1 WHERE id = ?", event.courseId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onUserCoursesChanged(UserCoursesChangedEvent event) {
+        jdbcTemplate.update("UPDATE e_korki.users SET courses_version = courses_version + 1 WHERE id = ?", event.userId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onUserProfileChanged(UserProfileChangedEvent event) {
+        jdbcTemplate.update("UPDATE e_korki.user_profiles SET content_version = content_version + 1 WHERE user_id = ?", event.userId());
+    }
+
+    // /course/get-info - same dane kursu
+    public String courseInfoTag(Long courseId) {
+        return "i" + courseId + "." + version("SELECT content_version FROM e_korki.courses WHERE id = ?", courseId);
+    }
+
+    // /course/get-one - dane kursu, karta właściciela i relacja użytkownika z kursem (właściciel / kupiony)
+    public String courseDetailsTag(Long courseId, Long userId) {
+        List<String> versions = jdbcTemplate.query("""
+                SELECT c.content_version, COALESCE(p.content_version, 0) AS owner_version
+                FROM e_korki.courses c
+                LEFT JOIN e_korki.user_profiles p ON p.user_id = c.user_id
+                WHERE c.id = ?
+                """, (rs, row) -> rs.getLong("content_version") + "." + rs.getLong("owner_version"), courseId);
+        String tag = "d" + courseId + "." + (versions.isEmpty() ? "0.0" : versions.get(0));
+        return userId != null
+                ? tag + "-u" + userId + "." + version("SELECT courses_version FROM e_korki.users WHERE id = ?", userId)
+                : tag;
+    }
+
+    // /user-profile/get
+    public String profileTag(Long userId) {
+        return "p" + userId + "." + version("SELECT content_version FROM e_korki.user_profiles WHERE user_id = ?", userId);
+    }
+
+    // Anonimowe odpowiedzi katalogu mogą chwilę leżeć we wspólnych cache; odpowiedzi zalogowanego
+    // zależą od jego kursów, więc tylko w przeglądarce i zawsze z rewalidacją przez ETag
+    public CacheControl catalogCacheControl(Long userId) {
+        return userId == null
+                ? CacheControl.maxAge(catalogMaxAge.toSeconds(), TimeUnit.SECONDS).cachePublic()
+                : CacheControl.noCache().cachePrivate();
+    }
+
+    // Brak wiersza to wersja 0 - odpowiedź i tak będzie 404, a id z sekwencji nie wracają
+    private long version(String sql, Long id) {
+        List<Long> versions = jdbcTemplate.queryForList(sql, Long.class, id);
+        return versions.isEmpty() || versions.get(0) == null ? 0 : versions.get(0);
+    }
+}
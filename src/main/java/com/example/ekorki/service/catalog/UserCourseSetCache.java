@@ -0,0 +1,55 @@
+package com.example.ekorki.service.catalog;
+
+import com.example.ekorki.model.UserCourseSet;
+import com.example.ekorki.repository.CourseRepository;
+import com.example.ekorki.repository.PurchasedCourseRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Kursy, których użytkownik nie powinien widzieć w sklepie (własne i kupione) - filtr nakładany na wspólne wyniki wyszukiwania.
+// Własny, ograniczony cache - nie zależy od profilu i CacheManagera.
+@Component
+public class UserCourseSetCache {
+    private final CourseRepository courseRepository;
+    private final PurchasedCourseRepository purchasedCourseRepository;
+    private final Cache<Long, UserCourseSet> courseSets;
+
+    public UserCourseSetCache(CourseRepository courseRepository,
+                              PurchasedCourseRepository purchasedCourseRepository,
+                              @Value("${catalog.user-courses.cache-size:10000}") long cacheSize,
+                              @Value("${catalog.user-courses.cache-ttl:PT30M}") Duration cacheTtl) {
+        this.courseRepository = courseRepository;
+        this.purchasedCourseRepository = purchasedCourseRepository;
+        this.courseSets = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    public UserCourseSet get(Long userId) {
+        if (userId == null) {
+            return UserCourseSet.EMPTY;
+        }
+
+        return courseSets.get(userId, this::load);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserCoursesChanged(UserCoursesChangedEvent event) {
+        courseSets.invalidate(event.userId());
+    }
+
+    private UserCourseSet load(Long userId) {
+        List<Long> courseIds = new ArrayList<>(courseRepository.findIdsByUserId(userId));
+        courseIds.addAll(purchasedCourseRepository.findCourseIdsByUserId(userId));
+        return UserCourseSet.of(courseIds);
+    }
+}
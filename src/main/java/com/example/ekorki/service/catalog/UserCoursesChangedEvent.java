@@ -0,0 +1,5 @@
+package com.example.ekorki.service.catalog;
+
+// Publikowane po zakupie lub utworzeniu kursu - zbiór kursów użytkownika jest odświeżany po commicie
+public record UserCoursesChangedEvent(Long userId) {
+}
@@ -0,0 +1,5 @@
+package com.example.ekorki.service.catalog;
+
+// Publikowane po zmianie profilu, ról lub ocen nauczyciela - wersja profilu dla ETag zmienia się po commicie
+public record UserProfileChangedEvent(Long userId) {
+}
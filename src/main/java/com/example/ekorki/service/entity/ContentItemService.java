@@ -2,10 +2,16 @@ package com.example.ekorki.service.entity;
 
 import com.example.ekorki.dto.contentItem.ContentItemCreateDTO;
 import com.example.ekorki.dto.contentItem.ContentItemUpdateDTO;
+import com.example.ekorki.dto.media.MediaReferenceDTO;
 import com.example.ekorki.entity.ContentItemEntity;
 import com.example.ekorki.entity.SubchapterEntity;
+import com.example.ekorki.entity.UploadSessionEntity;
 import com.example.ekorki.exception.ApiException;
 import com.example.ekorki.repository.ContentItemRepository;
+import com.example.ekorki.model.MediaStatus;
+import com.example.ekorki.service.media.MediaIngestService;
+import com.example.ekorki.service.media.MediaService;
+import com.example.ekorki.service.media.UploadSessionService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -27,6 +33,14 @@ public class ContentItemService {
     @Autowired
     private final ContentItemRepository contentItemRepository;
 
+    @Autowired
+    private final UploadSessionService uploadSessionService;
+
+    @Autowired
+    private final MediaIngestService mediaIngestService;
+
+    private static final long MAX_FILE_SIZE = 100 * 1024 * 1024;
+
     @Transactional
     public void createContentItems(List<ContentItemCreateDTO> dtos,
                                    SubchapterEntity subchapter,
@@ -57,6 +71,11 @@ public class ContentItemService {
 
                 case "image":
                 case "video":
+                    if (dto.getMediaId() != null) {
+                        processUploadedMedia(contentItem, dto.getMediaId(), subchapter);
+                        break;
+                    }
+
                     if (fileIndex >= contentFiles.length) {
                         throw new ApiException("Missing file for " + dto.getType() + " content at index " + fileIndex);
                     }
@@ -159,7 +178,11 @@ public class ContentItemService {
         } else if ("quiz".equals(item.getType())) {
             updateQuizData(item, itemDTO);
         } else if (Arrays.asList("video", "image").contains(item.getType())) {
-            updateFileContent(item, itemDTO, contentFiles, fileIndexMap);
+            if (itemDTO.getMediaId() != null && itemDTO.getMediaId().isPresent()) {
+                processUploadedMedia(item, itemDTO.getMediaId().get(), item.getSubchapter());
+            } else {
+                updateFileContent(item, itemDTO, contentFiles, fileIndexMap);
+            }
         }
     }
 
@@ -211,7 +234,7 @@ public class ContentItemService {
             throw new ApiException("File is empty");
         }
 
-        if (file.getSize() > 100 * 1024 * 1024) { // 100MB limit
+        if (file.getSize() > MAX_FILE_SIZE) { // 100MB limit
             throw new ApiException("File size exceeds maximum limit of 100MB");
         }
 
@@ -228,11 +251,10 @@ public class ContentItemService {
     }
 
     public ContentItemUpdateDTO mapContentItemToUpdateDTO(ContentItemEntity item) {
-        Map<String, Object> fileData = null;
-        if (item.getFile() != null && (item.getType().equals("image") || item.getType().equals("video"))) {
-            fileData = new HashMap<>();
-            fileData.put("data", item.getFile());
-            fileData.put("mimeType", item.getMimeType());
+        // Tylko odwołanie do pliku, jak w podglądzie podrozdziału - bajty pobierane osobno z /media/{id}
+        MediaReferenceDTO fileData = null;
+        if (item.getFileMediaId() != null && (item.getType().equals("image") || item.getType().equals("video"))) {
+            fileData = MediaService.reference(item.getFileMediaId(), item.getMimeType(), item.getFileSize());
         }
 
         Optional<Object> quizContentOpt = Optional.empty();
@@ -263,14 +285,27 @@ public class ContentItemService {
                 .file(Optional.ofNullable(fileData))
                 .deleted(Optional.of(false))
                 .updateFile(Optional.of(false))
+                .mediaId(Optional.empty())
                 .build();
     }
 
+    // Plik z zakończonej sesji wysyłania - typ i suma kontrolna sprawdzone już przy składaniu kawałków
+    private void processUploadedMedia(ContentItemEntity contentItem, Long mediaId, SubchapterEntity subchapter) {
+        Long ownerId = subchapter.getChapter().getCourse().getUser().getId();
+        UploadSessionEntity upload = uploadSessionService.findCompletedUpload(mediaId, ownerId);
+        contentItem.setFileMediaId(upload.getMediaId());
+        contentItem.setFileSize(upload.getTotalSize());
+        contentItem.setMimeType(upload.getMimeType());
+        contentItem.setMediaStatus(MediaStatus.READY);
+    }
+
     private void processFile(ContentItemEntity contentItem, MultipartFile file) {
         try {
             validateFile(file);
-            contentItem.setFile(file.getBytes());
-            contentItem.setMimeType(file.getContentType());
+            // Plik trafia do magazynu mediów w tle po commicie - element zapisujemy od razu, żeby znać jego id
+            contentItem.setMediaStatus(MediaStatus.PENDING);
+            contentItemRepository.save(contentItem);
+            mediaIngestService.stage(MediaIngestService.Kind.CONTENT, contentItem.getId(), file);
         } catch (IOException e) {
             throw new ApiException("Error processing file", e);
         }
@@ -7,12 +7,23 @@ import com.example.ekorki.dto.course.CourseCreateDTO;
 import com.example.ekorki.dto.course.CourseInfoDTO;
 import com.example.ekorki.dto.course.CourseUpdateDTO;
 import com.example.ekorki.exception.ApiException;
+import com.example.ekorki.dto.course.CourseMediaStatusDTO;
+import com.example.ekorki.model.ContentMediaStatus;
+import com.example.ekorki.model.CourseCard;
+import com.example.ekorki.model.MediaStatus;
+import com.example.ekorki.repository.ContentItemRepository;
 import com.example.ekorki.repository.CourseRepository;
 import com.example.ekorki.repository.UserRepository;
+import com.example.ekorki.service.catalog.CourseChangedEvent;
+import com.example.ekorki.service.catalog.UserCoursesChangedEvent;
+import com.example.ekorki.service.media.MediaIngestService;
+import com.example.ekorki.service.media.ImageVariant;
+import com.example.ekorki.service.media.MediaService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -51,9 +62,16 @@ public class CourseService {
     @Autowired
     private final ObjectMapper objectMapper;
 
+    private final ApplicationEventPublisher eventPublisher;
+
+
+    private final MediaIngestService mediaIngestService;
+
+    private final ContentItemRepository contentItemRepository;
+
     @CacheEvict(value = "courses", allEntries = true)
     @Transactional
-    public boolean createCourse(
+    public Long createCourse(
             CourseCreateDTO createDTO,
             MultipartFile bannerFile,
             MultipartFile[] contentFiles,
@@ -77,14 +95,19 @@ public class CourseService {
                     .reviewNumber(0)
                     .build();
 
-            if (bannerFile != null && !bannerFile.isEmpty()) {
+            boolean hasBanner = bannerFile != null && !bannerFile.isEmpty();
+            if (hasBanner) {
                 validateFile(bannerFile);
-                course.setBanner(bannerFile.getBytes());
-                course.setMimeType(bannerFile.getContentType());
+                course.setBannerStatus(MediaStatus.PENDING);
             }
 
             courseRepository.save(course);
 
+            // Warianty banera liczone w tle po commicie - żądanie nie czeka na skalowanie obrazu
+            if (hasBanner) {
+                course.setBannerJob(mediaIngestService.stage(MediaIngestService.Kind.BANNER, course.getId(), bannerFile));
+            }
+
             // Tworzenie rozdziałów i ich zawartości
             if (createDTO.getChapters() != null) {
                 for (int i = 0; i < createDTO.getChapters().size(); i++) {
@@ -104,7 +127,9 @@ public class CourseService {
                 }
             }
 
-            return true;
+            eventPublisher.publishEvent(new CourseChangedEvent(course.getId()));
+            eventPublisher.publishEvent(new UserCoursesChangedEvent(loggedInUserId));
+            return course.getId();
         } catch (Exception exception) {
             throw new ApiException("Error occurred while creating course"+exception.getMessage(), exception);
         }
@@ -130,8 +155,10 @@ public class CourseService {
 
             if (bannerFile != null && !bannerFile.isEmpty()) {
                 validateFile(bannerFile);
-                existingCourse.setBanner(bannerFile.getBytes());
-                existingCourse.setMimeType(bannerFile.getContentType());
+                // Do końca przetwarzania w tle widoczny jest poprzedni baner
+                existingCourse.setBannerStatus(MediaStatus.PENDING);
+                existingCourse.setBannerJob(
+                        mediaIngestService.stage(MediaIngestService.Kind.BANNER, existingCourse.getId(), bannerFile));
             }
 
             // Aktualizacja rozdziałów i ich zawartości
@@ -140,6 +167,7 @@ public class CourseService {
 
             existingCourse.setUpdatedAt(LocalDateTime.now());
             courseRepository.save(existingCourse);
+            eventPublisher.publishEvent(new CourseChangedEvent(existingCourse.getId()));
             return true;
 
         } catch (Exception e) {
@@ -147,6 +175,29 @@ public class CourseService {
         }
     }
 
+    @Transactional(readOnly = true)
+    public CourseMediaStatusDTO getMediaStatus(Long courseId, Long loggedInUserId) {
+        CourseEntity course = courseRepository.findById(courseId)
+                .orElseThrow(() -> new EntityNotFoundException("Course not found"));
+
+        if (!course.getUser().getId().equals(loggedInUserId)) {
+            throw new ApiException("You don't have permission to view this course");
+        }
+
+        List<ContentMediaStatus> contentItems = contentItemRepository.findMediaStatusesByCourseId(courseId);
+        List<MediaStatus> statuses = new ArrayList<>();
+        statuses.add(course.getBannerStatus());
+        contentItems.forEach(item -> statuses.add(item.status()));
+
+        return CourseMediaStatusDTO.builder()
+                .courseId(courseId)
+                .bannerStatus(course.getBannerStatus())
+                .pending(statuses.stream().filter(MediaStatus.PENDING::equals).count())
+                .failed(statuses.stream().filter(MediaStatus.FAILED::equals).count())
+                .contentItems(contentItems)
+                .build();
+    }
+
     private void updateBasicCourseInfo(CourseEntity course, CourseUpdateDTO updateDTO) {
         updateDTO.getName().ifPresent(course::setName);
         updateDTO.getDescription().ifPresent(course::setDescription);
@@ -159,24 +210,20 @@ public class CourseService {
     public Page<CourseDataDTO> getUserCourses(Long userId, int page, int size) {
         validatePaginationParams(page, size);
 
-        Optional<List<CourseEntity>> optionalCourseEntityList = courseRepository.findAllByUserId(userId);
-        if (optionalCourseEntityList.isPresent()) {
-            List<CourseEntity> allCourses = optionalCourseEntityList.get();
+        List<CourseCard> allCourses = courseRepository.findCardsByOwnerId(userId);
 
-            int start = page * size;
-            int end = Math.min(start + size, allCourses.size());
+        int start = Math.min(page * size, allCourses.size());
+        int end = Math.min(start + size, allCourses.size());
 
-            List<CourseDataDTO> courseDTOs = allCourses.subList(start, end).stream()
-                    .map(this::mapToCourseData)
-                    .collect(Collectors.toList());
+        List<CourseDataDTO> courseDTOs = allCourses.subList(start, end).stream()
+                .map(this::mapToCourseData)
+                .collect(Collectors.toList());
 
-            return new PageImpl<>(
-                    courseDTOs,
-                    PageRequest.of(page, size),
-                    allCourses.size()
-            );
-        }
-        throw new ApiException("Courses not found");
+        return new PageImpl<>(
+                courseDTOs,
+                PageRequest.of(page, size),
+                allCourses.size()
+        );
     }
 
     private void validatePaginationParams(int page, int size) {
@@ -188,25 +235,21 @@ public class CourseService {
         }
     }
 
-    public CourseDataDTO mapToCourseData(CourseEntity course){
-        Hibernate.initialize(course.getChapters());
-        Map<String, Object> bannerData = new HashMap<>();
-        bannerData.put("data", course.getBanner());
-        bannerData.put("mimeType", course.getMimeType());
+    public CourseDataDTO mapToCourseData(CourseCard course){
         return CourseDataDTO.builder()
-                .id(course.getId())
-                .name(course.getName())
-                .banner(bannerData)
-                .price(course.getPrice())
-                .duration(course.getDuration())
-                .tags(course.getTags())
-                .review(course.getReview())
-                .reviewNumber(course.getReviewNumber())
-                .description(course.getDescription())
-                .createdAt(course.getCreatedAt())
-                .updatedAt(course.getUpdatedAt())
-                .chaptersCount(course.getChapters().size())
-                .ownerId(course.getUser().getId())
+                .id(course.id())
+                .name(course.name())
+                .bannerUrl(course.bannerUrl())
+                .price(course.price())
+                .duration(course.duration())
+                .tags(course.tags())
+                .review(course.review())
+                .reviewNumber(course.reviewNumber())
+                .description(course.description())
+                .createdAt(course.createdAt())
+                .updatedAt(course.updatedAt())
+                .chaptersCount(course.chaptersCount().intValue())
+                .ownerId(course.ownerId())
                 .build();
     }
 
@@ -224,13 +267,10 @@ public class CourseService {
 
     public CourseInfoDTO mapToCourseInfo(CourseEntity course){
         Hibernate.initialize(course.getChapters());
-        Map<String, Object> bannerData = new HashMap<>();
-        bannerData.put("data", course.getBanner());
-        bannerData.put("mimeType", course.getMimeType());
         return CourseInfoDTO.builder()
                 .id(course.getId())
                 .name(course.getName())
-                .banner(bannerData)
+                .bannerUrl(MediaService.bannerUrl(course.getId(), course.getBannerMediaId(), ImageVariant.FULL))
                 .review(course.getReview())
                 .duration(course.getDuration())
                 .ownerId(course.getUser().getId())
@@ -277,13 +317,10 @@ public class CourseService {
     }
 
     private CourseUpdateDTO mapCourseToUpdateDTO(CourseEntity course) {
-        Map<String, Object> bannerData = new HashMap<>();
-        bannerData.put("data", course.getBanner());
-        bannerData.put("mimeType", course.getMimeType());
         return CourseUpdateDTO.builder()
                 .id(course.getId())
                 .name(Optional.ofNullable(course.getName()))
-                .banner(Optional.ofNullable(bannerData))
+                .bannerUrl(Optional.ofNullable(MediaService.bannerUrl(course.getId(), course.getBannerMediaId(), ImageVariant.FULL)))
                 .description(Optional.ofNullable(course.getDescription()))
                 .price(Optional.ofNullable(course.getPrice()))
                 .duration(Optional.ofNullable(course.getDuration()))
@@ -4,67 +4,225 @@ import com.example.ekorki.entity.LoginAttemptEntity;
 import com.example.ekorki.service.IpHasher;
 
 import com.example.ekorki.repository.LoginAttemptRepository;
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+// Limit nieudanych logowań liczony w pamięci: okno przesuwne per skrót IP i per email, bez zapytań do bazy
+// przy każdym logowaniu. Wiersze login_attempts dopisuje w tle wątek zapisujący partiami - tabela służy
+// jako dziennik i do odbudowania liczników po restarcie. Liczniki są lokalne dla instancji.
 @Service
-@RequiredArgsConstructor
 public class LoginAttemptService {
     private static final Logger logger = LoggerFactory.getLogger(LoginAttemptService.class);
 
-    @Autowired
-    private LoginAttemptRepository loginAttemptRepository;
+    private static final String INSERT_ATTEMPT =
+            "INSERT INTO e_korki.login_attempts (email, ip, attempt_time, successful) VALUES (?, ?, ?, ?)";
+    static final int WINDOW_BUCKETS = 10;
+    private static final int BATCH_SIZE = 500;
 
-    @Autowired
-    private IpHasher ipHasher;
-    private static final int MAX_FAILED_ATTEMPTS = 5;
-    private static final int BLOCK_DURATION_MINUTES = 5;
+    private final LoginAttemptRepository loginAttemptRepository;
+    private final IpHasher ipHasher;
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxFailedPerIp;
+    private final int maxFailedPerEmail;
+    private final Duration window;
+    private final long bucketMillis;
 
-    @Transactional(readOnly = true)
-    public boolean isAccountBlocked(String email, String clientIp) {
-        LocalDateTime threshold = LocalDateTime.now().minusMinutes(BLOCK_DURATION_MINUTES);
+    // Klucze "ip:<skrót>" i "email:<adres>"; nieużywane liczniki wygasają razem z oknem
+    private final Cache<String, SlidingWindow> failures;
+    private final BlockingQueue<LoginAttemptEntity> pending;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public LoginAttemptService(LoginAttemptRepository loginAttemptRepository,
+                               IpHasher ipHasher,
+                               JdbcTemplate jdbcTemplate,
+                               @Value("${login.rate-limit.max-failed-per-ip:5}") int maxFailedPerIp,
+                               @Value("${login.rate-limit.max-failed-per-email:5}") int maxFailedPerEmail,
+                               @Value("${login.rate-limit.window:5m}") Duration window,
+                               @Value("${login.rate-limit.max-tracked-keys:100000}") long maxTrackedKeys,
+                               @Value("${login.attempt-log.queue-capacity:10000}") int queueCapacity) {
+        this.loginAttemptRepository = loginAttemptRepository;
+        this.ipHasher = ipHasher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxFailedPerIp = maxFailedPerIp;
+        this.maxFailedPerEmail = maxFailedPerEmail;
+        this.window = window;
+        this.bucketMillis = Math.max(1, window.toMillis() / WINDOW_BUCKETS);
+        this.failures = Caffeine.newBuilder()
+                .expireAfterAccess(window)
+                .maximumSize(maxTrackedKeys)
+                .build();
+        this.pending = new LinkedBlockingQueue<>(queueCapacity);
+        this.writer = Thread.ofVirtual().name("login-attempt-writer").start(this::writeBehind);
+    }
 
-        // Check failed attempts for email
-        int emailFailedAttempts = loginAttemptRepository.countFailedAttempts(email, threshold);
-        logger.info("Failed login attempts for email {}: {}", email, emailFailedAttempts);
+    // Blokada po przekroczeniu limitu z jednego IP (zgadywanie wielu kont) albo na jedno konto (zgadywanie hasła)
+    public boolean isAccountBlocked(String email, String clientIp) {
+        long bucket = currentBucket();
+        return failedAttempts(ipKey(ipHasher.hashIp(clientIp)), bucket) >= maxFailedPerIp
+                || failedAttempts(emailKey(email), bucket) >= maxFailedPerEmail;
+    }
 
+    // Licznik rośnie od razu, a wiersz trafia do kolejki - logowanie nie czeka na zapis do bazy
+    public void recordLoginAttempt(String email, String clientIp, boolean successful) {
         String hashedIp = ipHasher.hashIp(clientIp);
-        int ipFailedAttempts = loginAttemptRepository.countFailedAttemptsFromIp(hashedIp, threshold);
+        LocalDateTime now = LocalDateTime.now();
+        if (!successful) {
+            long bucket = currentBucket();
+            failures.get(ipKey(hashedIp), key -> new SlidingWindow()).add(bucket);
+            failures.get(emailKey(email), key -> new SlidingWindow()).add(bucket);
+            logger.warn("Failed login attempt recorded - Email: {}, IP: {}", email, clientIp);
+        } else {
+            logger.info("Successful login recorded - Email: {}", email);
+        }
 
-        if (ipFailedAttempts >= MAX_FAILED_ATTEMPTS) {
-            return true;
+        LoginAttemptEntity attempt = LoginAttemptEntity.builder()
+                .email(email)
+                .ipAddress(hashedIp)
+                .attemptTime(now)
+                .successful(successful)
+                .build();
+        // Pełna kolejka oznacza, że baza nie nadąża - limit i tak działa na licznikach w pamięci
+        if (!pending.offer(attempt)) {
+            logger.warn("Login attempt log queue full, attempt for {} not persisted", email);
         }
-        return false;
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void recordLoginAttempt(String email, String clientIp, boolean successful) {
+    // Nieudane próby z bieżącego okna - bez tego restart zerowałby blokady w trakcie ataku
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
         try {
-            String hashedIp = ipHasher.hashIp(clientIp);
-            LoginAttemptEntity attempt = LoginAttemptEntity.builder()
-                    .email(email)
-                    .ipAddress(hashedIp)
-                    .attemptTime(LocalDateTime.now())
-                    .successful(successful)
-                    .build();
-
-            loginAttemptRepository.save(attempt);
-
-            if (!successful) {
-                logger.warn("Failed login attempt recorded - Email: {}, IP: {}", email, clientIp);
-            } else {
-                logger.info("Successful login recorded - Email: {}", email);
+            LocalDateTime since = LocalDateTime.now().minus(window);
+            List<LoginAttemptEntity> attempts = loginAttemptRepository.findBySuccessfulFalseAndAttemptTimeAfter(since);
+            for (LoginAttemptEntity attempt : attempts) {
+                long bucket = attempt.getAttemptTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() / bucketMillis;
+                failures.get(ipKey(attempt.getIpAddress()), key -> new SlidingWindow()).add(bucket);
+                failures.get(emailKey(attempt.getEmail()), key -> new SlidingWindow()).add(bucket);
             }
+            logger.info("Rebuilt login rate limits from {} failed attempts", attempts.size());
         } catch (Exception e) {
-            logger.error("Error recording login attempt", e);
-            // Don't rethrow - we don't want this to affect the main login flow
+            logger.error("Failed to rebuild login rate limits, counting starts from zero: {}", e.getMessage());
+        }
+    }
+
+    // Wątek kończy bieżącą partię, resztę kolejki zapisujemy przed zamknięciem połączeń z bazą
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        List<LoginAttemptEntity> batch = new ArrayList<>();
+        while (pending.drainTo(batch, BATCH_SIZE) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeBehind() {
+        List<LoginAttemptEntity> batch = new ArrayList<>(BATCH_SIZE);
+        while (running) {
+            try {
+                LoginAttemptEntity first = pending.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pending.drainTo(batch, BATCH_SIZE - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Jedna paczka INSERT-ów w jednym żądaniu do bazy
+    private void write(List<LoginAttemptEntity> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_ATTEMPT, batch, batch.size(), (statement, attempt) -> {
+                statement.setString(1, attempt.getEmail());
+                statement.setString(2, attempt.getIpAddress());
+                statement.setTimestamp(3, Timestamp.valueOf(attempt.getAttemptTime()));
+                statement.setBoolean(4, attempt.isSuccessful());
+            });
+        } catch (Exception e) {
+            logger.error("Error recording {} login attempts: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private int failedAttempts(String key, long bucket) {
+        SlidingWindow counter = failures.getIfPresent(key);
+        return counter != null ? counter.count(bucket) : 0;
+    }
+
+    private long currentBucket() {
+        return System.currentTimeMillis() / bucketMillis;
+    }
+
+    private static String ipKey(String hashedIp) {
+        return "ip:" + hashedIp;
+    }
+
+    private static String emailKey(String email) {
+        return "email:" + email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Okno podzielone na przedziały; przedział to jedna liczba (numer przedziału | licznik) zmieniana przez CAS,
+    // więc przejście do nowego przedziału i zliczanie nie wymagają blokad. Dokładność - jeden przedział.
+    static final class SlidingWindow {
+        private static final int COUNT_BITS = 20;
+        private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+        private final AtomicLongArray slots = new AtomicLongArray(WINDOW_BUCKETS);
+
+        void add(long bucket) {
+            int index = (int) Math.floorMod(bucket, (long) WINDOW_BUCKETS);
+            while (true) {
+                long slot = slots.get(index);
+                long slotBucket = slot >>> COUNT_BITS;
+                if (slotBucket > bucket) {
+                    // Starsza próba (odbudowa z bazy) w przedziale, który zajął już nowszy
+                    return;
+                }
+                long next = slotBucket == bucket
+                        ? slot + ((slot & COUNT_MASK) < COUNT_MASK ? 1 : 0)
+                        : (bucket << COUNT_BITS) | 1;
+                if (slots.compareAndSet(index, slot, next)) {
+                    return;
+                }
+            }
+        }
+
+        int count(long currentBucket) {
+            int total = 0;
+            for (int i = 0; i < WINDOW_BUCKETS; i++) {
+                long slot = slots.get(i);
+                long slotBucket = slot >>> COUNT_BITS;
+                if (slotBucket > currentBucket - WINDOW_BUCKETS && slotBucket <= currentBucket) {
+                    total += (int) (slot & COUNT_MASK);
+                }
+            }
+            return total;
         }
     }
-}
\ No newline at end of file
+}
@@ -11,8 +11,10 @@ import com.example.ekorki.repository.PurchasedCourseRepository;
 import com.example.ekorki.repository.UserRepository;
 import com.example.ekorki.service.CourseShopService;
 import com.example.ekorki.service.EmailService;
+import com.example.ekorki.service.catalog.UserCoursesChangedEvent;
 import lombok.RequiredArgsConstructor;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -33,6 +35,7 @@ public class PurchasedCourseService {
     private final CourseShopService courseShopService;
     private final PaymentHistoryService paymentHistoryService;
     private final EmailService emailService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     @CacheEvict(value = "courses", allEntries = true)
@@ -78,6 +81,7 @@ public class PurchasedCourseService {
                     .build();
 
             purchasedCourseRepository.save(purchase);
+            eventPublisher.publishEvent(new UserCoursesChangedEvent(buyerId));
 
             paymentHistoryService.addTransaction(
                     buyerId,
@@ -124,19 +128,19 @@ public class PurchasedCourseService {
     public Page<CourseShopResponseDTO> getPurchasedCourses(Long userId, int page, int size) {
         validatePaginationParams(page, size);
 
-        List<PurchasedCourseEntity> allPurchases = purchasedCourseRepository.findByUserId(userId);
+        // Same id kursów - karty z wybranej strony pobieramy bez banerów
+        List<Long> allPurchasedCourseIds = purchasedCourseRepository.findCourseIdsByUserId(userId);
 
-        int start = page * size;
-        int end = Math.min(start + size, allPurchases.size());
+        int start = Math.min(page * size, allPurchasedCourseIds.size());
+        int end = Math.min(start + size, allPurchasedCourseIds.size());
 
-        List<CourseShopResponseDTO> purchasedCourseDTOs = allPurchases.subList(start, end).stream()
-                .map(purchase -> courseShopService.mapToCourseShopResponseDTO(purchase.getCourse()))
-                .collect(Collectors.toList());
+        List<CourseShopResponseDTO> purchasedCourseDTOs =
+                courseShopService.getCourseCardsInOrder(allPurchasedCourseIds.subList(start, end));
 
         return new PageImpl<>(
                 purchasedCourseDTOs,
                 PageRequest.of(page, size),
-                allPurchases.size()
+                allPurchasedCourseIds.size()
         );
     }
 
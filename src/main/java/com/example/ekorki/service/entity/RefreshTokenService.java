@@ -75,7 +75,7 @@ public class RefreshTokenService {
 
         Optional<UserEntity> user = userRepository.findById(refreshTokenEntity.getUserId());
         if (verifyExpiration(refreshTokenEntity) && user.isPresent()) {
-            return jwtService.generateAccessToken(user.get().getEmail());
+            return jwtService.generateAccessToken(user.get());
         }
 
         throw new RuntimeException("Invalid refresh token");
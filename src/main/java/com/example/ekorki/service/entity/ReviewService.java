@@ -7,8 +7,13 @@ import com.example.ekorki.entity.*;
 import com.example.ekorki.exception.ApiException;
 import com.example.ekorki.repository.*;
 import com.example.ekorki.service.CourseShopService;
+import com.example.ekorki.service.catalog.CourseChangedEvent;
+import com.example.ekorki.service.catalog.UserProfileChangedEvent;
+import com.example.ekorki.service.media.ImageVariant;
+import com.example.ekorki.service.media.MediaService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -34,6 +39,7 @@ public class ReviewService {
     private final RoleService roleService;
     private final TeacherProfileRepository teacherProfileRepository;
     private final CourseShopService courseShopService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public void addCourseReview(Long courseId, Long userId, ReviewCreateDTO reviewDTO){
@@ -73,6 +79,7 @@ public class ReviewService {
         course.setReviewNumber(currentReviewCount + 1);
         courseRepository.save(course);
         courseShopService.evictBestCoursesCache(userId);
+        eventPublisher.publishEvent(new CourseChangedEvent(courseId));
 
     }
 
@@ -115,6 +122,8 @@ public class ReviewService {
         chapterRepository.save(chapter);
 
         courseShopService.evictBestCoursesCache(userId);
+        // Ocena rozdziału jest częścią szczegółów kursu
+        eventPublisher.publishEvent(new CourseChangedEvent(chapter.getCourse().getId()));
 
     }
 
@@ -183,7 +192,7 @@ public class ReviewService {
                 .fullName(userProfile.getFullName())
                 .description(userProfile.getDescription())
                 .createdAt(userProfile.getCreatedAt())
-                .picture(createPictureData(userProfile))
+                .pictureUrl(MediaService.variantUrl(userProfile.getPictureMediaId(), ImageVariant.THUMB))
                 .badgesVisible(userProfile.getBadgesVisible())
                 .roles(roles)
                 .build();
@@ -209,17 +218,6 @@ public class ReviewService {
                 .build();
     }
 
-    private Map<String, Object> createPictureData(UserProfileEntity profile) {
-        if (profile.getPicture() == null) {
-            return null;
-        }
-
-        Map<String, Object> pictureData = new HashMap<>();
-        pictureData.put("data", profile.getPicture());
-        pictureData.put("mimeType", profile.getPictureMimeType());
-        return pictureData;
-    }
-
     private void validateSearchParams(int page, int size, String sortBy, String sortDir) {
         if (page < 0) {
             throw new IllegalArgumentException("Page number cannot be negative");
@@ -291,6 +289,7 @@ public class ReviewService {
                 BigDecimal newAverage = currentTotal.divide(BigDecimal.valueOf(reviewCount), 2, RoundingMode.HALF_UP);
                 course.setReview(newAverage);
                 courseRepository.save(course);
+                eventPublisher.publishEvent(new CourseChangedEvent(targetId));
 
             }
             case CHAPTER -> {
@@ -307,6 +306,7 @@ public class ReviewService {
                 BigDecimal newAverage = currentTotal.divide(BigDecimal.valueOf(reviewCount), 2, RoundingMode.HALF_UP);
                 chapter.setReview(newAverage);
                 chapterRepository.save(chapter);
+                eventPublisher.publishEvent(new CourseChangedEvent(chapter.getCourse().getId()));
             }
         }
     }
@@ -351,6 +351,7 @@ public class ReviewService {
 
                 course.setReviewNumber(newReviewCount);
                 courseRepository.save(course);
+                eventPublisher.publishEvent(new CourseChangedEvent(course.getId()));
             }
             case CHAPTER -> {
                 ChapterEntity chapter = chapterRepository.findById(review.getTargetId())
@@ -370,6 +371,7 @@ public class ReviewService {
 
                 chapter.setReviewNumber(newReviewCount);
                 chapterRepository.save(chapter);
+                eventPublisher.publishEvent(new CourseChangedEvent(chapter.getCourse().getId()));
             }
         }
     }
@@ -436,5 +438,6 @@ public class ReviewService {
         teacherProfile.setReviewNumber(currentReviewCount + 1);
         teacherProfile.setUpdatedAt(LocalDateTime.now());
         teacherProfileRepository.save(teacherProfile);
+        eventPublisher.publishEvent(new UserProfileChangedEvent(teacherId));
     }
 }
@@ -4,7 +4,11 @@ import com.example.ekorki.entity.RoleEntity;
 import com.example.ekorki.entity.UserEntity;
 import com.example.ekorki.exception.ApiException;
 import com.example.ekorki.repository.RoleRepository;
+import com.example.ekorki.service.OwnerCardService;
+import com.example.ekorki.service.TokenVersionService;
+import com.example.ekorki.service.catalog.UserProfileChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.Set;
@@ -16,6 +20,15 @@ public class RoleService {
     @Autowired
     private RoleRepository roleRepository;
 
+    @Autowired
+    private OwnerCardService ownerCardService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TokenVersionService tokenVersionService;
+
     @Transactional
     public void addRoleToUser(UserEntity user, RoleEntity.Role role) {
         if (!roleRepository.existsByUserIdAndRole(user.getId(), role)) {
@@ -23,6 +36,10 @@ public class RoleService {
             roleEntity.setUser(user);
             roleEntity.setRole(role);
             roleRepository.save(roleEntity);
+            ownerCardService.evict(user.getId());
+            eventPublisher.publishEvent(new UserProfileChangedEvent(user.getId()));
+            // Role są w tokenie dostępu - stary token trzeba odświeżyć
+            tokenVersionService.invalidate(user);
         }
     }
 
@@ -31,6 +48,9 @@ public class RoleService {
         RoleEntity roleEntity = roleRepository.findByUserIdAndRole(user.getId(), role)
                 .orElseThrow(() -> new ApiException("Role not found"));
         roleRepository.delete(roleEntity);
+        ownerCardService.evict(user.getId());
+        eventPublisher.publishEvent(new UserProfileChangedEvent(user.getId()));
+        tokenVersionService.invalidate(user);
     }
 
     @Transactional
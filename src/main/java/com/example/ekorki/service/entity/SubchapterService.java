@@ -1,6 +1,7 @@
 package com.example.ekorki.service.entity;
 
 import com.example.ekorki.dto.contentItem.ContentItemResponseDTO;
+import com.example.ekorki.dto.media.MediaReferenceDTO;
 import com.example.ekorki.dto.subchapter.SubchapterCreateDTO;
 import com.example.ekorki.dto.subchapter.SubchapterDetailsDTO;
 import com.example.ekorki.dto.subchapter.SubchapterUpdateDTO;
@@ -11,6 +12,8 @@ import com.example.ekorki.entity.SubchapterEntity;
 import com.example.ekorki.exception.ApiException;
 import com.example.ekorki.repository.PurchasedCourseRepository;
 import com.example.ekorki.repository.SubchapterRepository;
+import com.example.ekorki.service.media.MediaService;
+import com.example.ekorki.service.media.MediaUrlSigner;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -40,6 +43,12 @@ public class SubchapterService {
     @Autowired
     private final PurchasedCourseService purchasedCourseService;
 
+    @Autowired
+    private final MediaService mediaService;
+
+    @Autowired
+    private final MediaUrlSigner mediaUrlSigner;
+
     @CacheEvict(value = {"subchapters", "chapters", "contentItems"}, allEntries = true)
     @Transactional
     public SubchapterEntity createSubchapter(SubchapterCreateDTO dto, ChapterEntity chapter, int order) {
@@ -108,27 +117,32 @@ public class SubchapterService {
             }
         }
 
-        return mapToSubchapterDetailsDTO(subchapter);
+        return mapToSubchapterDetailsDTO(subchapter, userId);
     }
 
-    private SubchapterDetailsDTO mapToSubchapterDetailsDTO(SubchapterEntity subchapter) {
+    private SubchapterDetailsDTO mapToSubchapterDetailsDTO(SubchapterEntity subchapter, Long userId) {
         return SubchapterDetailsDTO.builder()
                 .id(subchapter.getId())
                 .chapterId(subchapter.getChapter().getId())
                 .name(subchapter.getName())
                 .order(subchapter.getOrder())
-                .content(mapContentItems(subchapter.getContent()))
+                .content(mapContentItems(subchapter.getContent(), userId))
                 .build();
     }
 
-    private List<ContentItemResponseDTO> mapContentItems(List<ContentItemEntity> contentItems) {
+    private List<ContentItemResponseDTO> mapContentItems(List<ContentItemEntity> contentItems, Long userId) {
+        Map<Long, String> sha256ByMediaId = mediaService.findSha256ByIds(contentItems.stream()
+                .map(ContentItemEntity::getFileMediaId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
         return contentItems.stream()
-                .map(this::mapContentItem)
+                .map(item -> mapContentItem(item, userId, sha256ByMediaId))
                 .sorted(Comparator.comparing(ContentItemResponseDTO::getOrder))
                 .collect(Collectors.toList());
     }
 
-    private ContentItemResponseDTO mapContentItem(ContentItemEntity item) {
+    private ContentItemResponseDTO mapContentItem(ContentItemEntity item, Long userId, Map<Long, String> sha256ByMediaId) {
         ContentItemResponseDTO.ContentItemResponseDTOBuilder builder = ContentItemResponseDTO.builder()
                 .id(item.getId())
                 .subchapterId(item.getSubchapter().getId())
@@ -165,11 +179,16 @@ public class SubchapterService {
 
             case "video":
             case "image":
-                if (item.getFile() != null) {
-                    Map<String, Object> fileData = new HashMap<>();
-                    fileData.put("data", item.getFile());
-                    fileData.put("mimeType", item.getMimeType());
-                    builder.file(fileData);
+                // Tylko odwołanie - bajty pobierane osobno z /media/{id}
+                builder.mediaStatus(item.getMediaStatus());
+                if (item.getFileMediaId() != null) {
+                    MediaReferenceDTO file = MediaService.reference(item.getFileMediaId(), item.getMimeType(), item.getFileSize());
+                    // Dostęp już sprawdzony - podpisany adres pozwala pobierać plik bez ponownej weryfikacji
+                    String sha256 = sha256ByMediaId.get(item.getFileMediaId());
+                    if (sha256 != null) {
+                        file.setUrl(mediaUrlSigner.sign(item.getId(), userId, sha256, item.getMimeType()));
+                    }
+                    builder.file(file);
                 }
                 break;
         }
@@ -7,17 +7,21 @@ import com.example.ekorki.entity.TeacherProfileEntity;
 import com.example.ekorki.entity.UserProfileEntity;
 import com.example.ekorki.repository.TeacherProfileRepository;
 import com.example.ekorki.repository.UserProfileRepository;
+import com.example.ekorki.service.OwnerCardService;
+import com.example.ekorki.service.catalog.UserProfileChangedEvent;
+import com.example.ekorki.service.media.ImageVariant;
+import com.example.ekorki.service.media.ImageVariantService;
+import com.example.ekorki.service.media.MediaService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -35,6 +39,17 @@ public class UserProfileService {
     @Autowired
     private final TeacherProfileRepository teacherProfileRepository;
 
+    @Autowired
+    private final OwnerCardService ownerCardService;
+
+    @Autowired
+    private final ImageVariantService imageVariantService;
+
+    @Autowired
+    private final ApplicationEventPublisher eventPublisher;
+
+    private static final long MAX_PICTURE_SIZE = 5 * 1024 * 1024;
+
 
     void addUserProfileToUser(String nameAndSurname, Long userId){
         UserProfileEntity userProfileEntity = new UserProfileEntity();
@@ -42,6 +57,7 @@ public class UserProfileService {
         userProfileEntity.setUserId(userId);
         userProfileEntity.setCreatedAt(new Date());
         userProfileRepository.save(userProfileEntity);
+        eventPublisher.publishEvent(new UserProfileChangedEvent(userId));
     }
 
     @Transactional
@@ -58,8 +74,10 @@ public class UserProfileService {
         if (picture != null && !picture.isEmpty()) {
             try {
                 validatePictureFile(picture);
-                userProfile.setPicture(picture.getBytes());
-                userProfile.setPictureMimeType(picture.getContentType());
+                ImageVariantService.StoredImage stored = imageVariantService.store(picture, MAX_PICTURE_SIZE);
+                userProfile.setPictureMediaId(stored.media().getId());
+                userProfile.setPictureSize(stored.media().getSize());
+                userProfile.setPictureMimeType(stored.mimeType());
             } catch (IOException e) {
                 throw new RuntimeException("Failed to process picture file", e);
             }
@@ -69,6 +87,8 @@ public class UserProfileService {
         }
 
         userProfileRepository.save(userProfile);
+        ownerCardService.evict(loggedInUserId);
+        eventPublisher.publishEvent(new UserProfileChangedEvent(loggedInUserId));
     }
 
     @Transactional(readOnly = true)
@@ -82,7 +102,7 @@ public class UserProfileService {
                 .fullName(userProfile.getFullName())
                 .description(userProfile.getDescription())
                 .createdAt(userProfile.getCreatedAt())
-                .picture(createPictureData(userProfile))
+                .pictureUrl(MediaService.variantUrl(userProfile.getPictureMediaId(), ImageVariant.CARD))
                 .badgesVisible(userProfile.getBadgesVisible())
                 .roles(roles.stream().map(Enum::name).collect(Collectors.toSet()));
 
@@ -104,17 +124,6 @@ public class UserProfileService {
                 .orElseThrow(() -> new EntityNotFoundException("User profile not found"));
     }
 
-    private Map<String, Object> createPictureData(UserProfileEntity profile) {
-        if (profile.getPicture() == null) {
-            return null;
-        }
-
-        Map<String, Object> pictureData = new HashMap<>();
-        pictureData.put("data", profile.getPicture());
-        pictureData.put("mimeType", profile.getPictureMimeType());
-        return pictureData;
-    }
-
     private void validatePictureFile(MultipartFile file) {
         // Sprawdź rozmiar pliku (np. max 5MB)
         if (file.getSize() > 5 * 1024 * 1024) {
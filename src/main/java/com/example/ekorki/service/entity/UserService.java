@@ -13,6 +13,9 @@ import com.example.ekorki.repository.UserRepository;
 import com.example.ekorki.service.EmailService;
 import com.example.ekorki.service.EmailVerificationService;
 import com.example.ekorki.service.JWTService;
+import com.example.ekorki.service.PasswordHashingService;
+import com.example.ekorki.service.media.ImageVariant;
+import com.example.ekorki.service.media.MediaService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -23,13 +26,10 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.annotation.Validated;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -72,7 +72,7 @@ import java.util.stream.Collectors;
     @Autowired
     private final EmailVerificationService emailVerificationService;
 
-    private final BCryptPasswordEncoder encoder;
+    private final PasswordHashingService passwordHashingService;
 
     private final AuthenticationManager authenticationManager;
 
@@ -98,13 +98,14 @@ import java.util.stream.Collectors;
                         new UsernamePasswordAuthenticationToken(userLoginDTO.email(), userLoginDTO.password())
                 );
             } catch (AuthenticationException e) {
-                // Record failed attempt in separate transaction
+                // Licznik w pamięci, wiersz dziennika zapisywany w tle
                 loginAttemptService.recordLoginAttempt(userLoginDTO.email(), clientIp, false);
                 throw new ApiException("Authentication failed: " + e.getMessage(), e);
             }
 
             UserEntity userEntity = userRepository.findByEmail(userLoginDTO.email().trim().toLowerCase());
-            String accessToken = jwtService.generateAccessToken(userLoginDTO.email());
+            passwordHashingService.rehashIfNeeded(userEntity, userLoginDTO.password());
+            String accessToken = jwtService.generateAccessToken(userEntity);
             String refreshToken = refreshTokenService.generateRefreshToken(userEntity.getId(), clientIp);
 
             loginAttemptService.recordLoginAttempt(userLoginDTO.email(), clientIp, true);
@@ -120,10 +121,12 @@ import java.util.stream.Collectors;
     public boolean registerUser(UserRegisterDTO userRegisterDTO) {
         if (userRepository.existsByEmail(userRegisterDTO.email()))
             throw new ApiException("Email already in use.");
+        // Poza try - pełna kolejka haszowania ma dać 429, a nie ogólny błąd rejestracji
+        String password = passwordHashingService.encode(userRegisterDTO.password(), PasswordHashingService.Operation.REGISTRATION);
         try {
             UserEntity userEntity = new UserEntity();
             userEntity.setEmail(userRegisterDTO.email());
-            userEntity.setPassword(encoder.encode(userRegisterDTO.password()));
+            userEntity.setPassword(password);
             userEntity.setPoints(0);
             userEntity.setBlocked(false);
             userRepository.save(userEntity);
@@ -163,7 +166,7 @@ import java.util.stream.Collectors;
                     .map(roleEntity -> roleEntity.getRole().toString())
                     .collect(Collectors.toSet());
             userDTO.setRoles(roles);
-            userDTO.setPicture(createPictureData(userProfileEntity.getPicture(), userProfileEntity.getPictureMimeType()));
+            userDTO.setPictureUrl(MediaService.variantUrl(userProfileEntity.getPictureMediaId(), ImageVariant.CARD));
             userDTO.setDescription(userProfileEntity.getDescription());
             return userDTO;
         } else {
@@ -215,19 +218,13 @@ import java.util.stream.Collectors;
         userDTO.setRoles(userEntity.getRoles().stream()
                 .map(role -> role.getRole().toString())
                 .collect(Collectors.toSet()));
-        userDTO.setPicture(createPictureData(userProfileEntity.getPicture(), userProfileEntity.getPictureMimeType()));
+        userDTO.setPictureUrl(MediaService.variantUrl(userProfileEntity.getPictureMediaId(), ImageVariant.CARD));
         userDTO.setDescription(userProfileEntity.getDescription());
         userDTO.setBadgesVisible(userProfileEntity.getBadgesVisible());
 
         return userDTO;
     }
 
-    private Map<String, Object> createPictureData(byte[] picture, String mimeType) {
-        Map<String, Object> pictureData = new HashMap<>();
-        pictureData.put("data", picture);
-        pictureData.put("mimeType", mimeType);
-        return pictureData;
-    }
 
 
 
@@ -0,0 +1,34 @@
+package com.example.ekorki.service.media;
+
+import java.util.Locale;
+
+// Stałe warianty obrazów tworzone przy wysyłce: dłuższy bok i limit rozmiaru pliku
+public enum ImageVariant {
+    THUMB(128, 24 * 1024),
+    CARD(640, 120 * 1024),
+    FULL(1920, 600 * 1024);
+
+    private final int maxEdge;
+    private final int maxBytes;
+
+    ImageVariant(int maxEdge, int maxBytes) {
+        this.maxEdge = maxEdge;
+        this.maxBytes = maxBytes;
+    }
+
+    public int maxEdge() {
+        return maxEdge;
+    }
+
+    public int maxBytes() {
+        return maxBytes;
+    }
+
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static ImageVariant fromKey(String key) {
+        return valueOf(key.toUpperCase(Locale.ROOT));
+    }
+}
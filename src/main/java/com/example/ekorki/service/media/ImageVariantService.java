@@ -0,0 +1,179 @@
+package com.example.ekorki.service.media;
+
+import com.example.ekorki.entity.MediaEntity;
+import com.example.ekorki.exception.ApiException;
+import com.example.ekorki.repository.MediaVariantRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+
+// Banery i zdjęcia profilowe dekodowane raz przy wysyłce i zapisywane jako stałe warianty.
+// Oryginał nie jest przechowywany - głównym plikiem encji jest wariant FULL.
+@Service
+@RequiredArgsConstructor
+public class ImageVariantService {
+    // Zabezpieczenie przed obrazami, które po zdekodowaniu zajęłyby setki MB
+    private static final long MAX_PIXELS = 40_000_000L;
+    private static final float JPEG_QUALITY = 0.85f;
+    private static final float MIN_JPEG_QUALITY = 0.4f;
+    // Poniżej tego boku obraz jest bezużyteczny - zamiast dalej zmniejszać odrzucamy plik
+    private static final int MIN_EDGE = 16;
+
+    private final MediaService mediaService;
+    private final MediaVariantRepository mediaVariantRepository;
+
+    public record StoredImage(MediaEntity media, String mimeType) {
+    }
+
+    private record EncodedImage(byte[] bytes, BufferedImage image) {
+    }
+
+    public StoredImage store(MultipartFile file, long maxBytes) throws IOException {
+        try (ValidatedUploadStream content = ValidatedUploadStream.open(file, maxBytes, "image/")) {
+            return store(content);
+        }
+    }
+
+    // Bez własnej transakcji - dekodowanie i skalowanie nie trzymają połączenia z bazą,
+    // każdy zapis pliku i wariantu to krótka transakcja (wiersze są idempotentne)
+    public StoredImage store(InputStream content) throws IOException {
+        BufferedImage source = decode(content);
+
+        // Przezroczystość zostaje w PNG, reszta idzie do JPEG - ten sam format dla wszystkich wariantów
+        boolean alpha = source.getColorModel().hasAlpha();
+        String format = alpha ? "png" : "jpeg";
+
+        EncodedImage full = encode(scale(source, ImageVariant.FULL.maxEdge(), alpha), format, ImageVariant.FULL, alpha);
+        MediaEntity main = mediaService.store(new ByteArrayInputStream(full.bytes()));
+
+        // Mniejsze warianty skalowane z już pomniejszonego FULL
+        for (ImageVariant variant : List.of(ImageVariant.CARD, ImageVariant.THUMB)) {
+            EncodedImage scaled = encode(scale(full.image(), variant.maxEdge(), alpha), format, variant, alpha);
+            MediaEntity stored = mediaService.store(new ByteArrayInputStream(scaled.bytes()));
+            mediaVariantRepository.insertIfAbsent(main.getId(), variant.key(), stored.getId(),
+                    scaled.image().getWidth(), scaled.image().getHeight());
+        }
+
+        return new StoredImage(main, "image/" + format);
+    }
+
+    private BufferedImage decode(InputStream content) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(content)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new ApiException("Unsupported image format");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // Wymiary z nagłówka - zbyt duży obraz odrzucamy przed dekodowaniem
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+                    throw new ApiException("Image dimensions are too large");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Zmniejszanie po połowie do docelowego rozmiaru - jednokrotne dwuliniowe skalowanie z dużego obrazu daje schodki
+    private BufferedImage scale(BufferedImage source, int maxEdge, boolean alpha) {
+        double ratio = Math.min(1.0, (double) maxEdge / Math.max(source.getWidth(), source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            current = draw(current, width, height, alpha);
+        } while (width != targetWidth || height != targetHeight);
+
+        return current;
+    }
+
+    private BufferedImage draw(BufferedImage source, int width, int height, boolean alpha) {
+        BufferedImage target = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    // Limit wariantu jest twardy: JPEG najpierw traci jakość, a gdy to nie wystarcza, oba formaty są
+    // zmniejszane proporcjonalnie do nadmiaru bajtów. Obraz, który nie mieści się nawet przy MIN_EDGE, odrzucamy.
+    private EncodedImage encode(BufferedImage image, String format, ImageVariant variant, boolean alpha) throws IOException {
+        BufferedImage current = image;
+        while (true) {
+            byte[] encoded = format.equals("png") ? encodePng(current) : encodeJpegWithinLimit(current, variant.maxBytes());
+            if (encoded.length <= variant.maxBytes()) {
+                return new EncodedImage(encoded, current);
+            }
+
+            int longerEdge = Math.max(current.getWidth(), current.getHeight());
+            if (longerEdge <= MIN_EDGE) {
+                throw new ApiException("Image cannot be compressed to the allowed size");
+            }
+            // Rozmiar pliku rośnie mniej więcej z liczbą pikseli, więc bok skalujemy pierwiastkiem nadmiaru, z zapasem
+            double ratio = Math.min(0.9, 0.95 * Math.sqrt((double) variant.maxBytes() / encoded.length));
+            current = scale(current, Math.max(MIN_EDGE, (int) (longerEdge * ratio)), alpha);
+        }
+    }
+
+    private byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    // JPEG zapisujemy z coraz niższą jakością, aż zmieści się w limicie wariantu albo dojdzie do MIN_JPEG_QUALITY
+    private byte[] encodeJpegWithinLimit(BufferedImage image, int maxBytes) throws IOException {
+        float quality = JPEG_QUALITY;
+        byte[] encoded = encodeJpeg(image, quality);
+        while (encoded.length > maxBytes && quality - 0.15f >= MIN_JPEG_QUALITY) {
+            quality -= 0.15f;
+            encoded = encodeJpeg(image, quality);
+        }
+        return encoded;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam params = writer.getDefaultWriteParam();
+            params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            params.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), params);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
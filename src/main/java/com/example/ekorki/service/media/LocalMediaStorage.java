@@ -0,0 +1,97 @@
+package com.example.ekorki.service.media;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// Pliki na dysku w katalogach ab/cd/abcd... według skrótu - żaden katalog nie rośnie do setek tysięcy wpisów
+@Component
+@Slf4j
+public class LocalMediaStorage implements MediaStorage {
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+
+    public LocalMediaStorage(@Value("${media.storage.path:media}") String path) {
+        this.root = Path.of(path).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public StoredObject store(InputStream content) throws IOException {
+        Path tmpDirectory = Files.createDirectories(root.resolve("tmp"));
+        Path temp = Files.createTempFile(tmpDirectory, "upload-", ".part");
+
+        try {
+            // Skrót liczony w locie - plik czytamy raz i nigdy nie trzymamy go w całości w pamięci
+            DigestInputStream digestStream = new DigestInputStream(content, sha256Digest());
+            long size;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                size = digestStream.transferTo(out);
+            }
+
+            String sha256 = HexFormat.of().formatHex(digestStream.getMessageDigest().digest());
+            Path target = resolve(sha256);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                try {
+                    // Plik tymczasowy leży na tym samym dysku, więc przeniesienie jest atomowe
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    log.debug("Media {} stored concurrently by another upload", sha256);
+                }
+            }
+            return new StoredObject(sha256, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream open(String sha256) throws IOException {
+        return Files.newInputStream(resolve(sha256));
+    }
+
+    @Override
+    public Optional<Path> localPath(String sha256) {
+        return Optional.of(resolve(sha256));
+    }
+
+    @Override
+    public boolean exists(String sha256) {
+        return Files.exists(resolve(sha256));
+    }
+
+    @Override
+    public void delete(String sha256) throws IOException {
+        Files.deleteIfExists(resolve(sha256));
+    }
+
+    private Path resolve(String sha256) {
+        if (sha256 == null || !SHA256.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("Invalid media hash");
+        }
+        return root.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
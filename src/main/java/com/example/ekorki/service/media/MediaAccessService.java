@@ -0,0 +1,45 @@
+package com.example.ekorki.service.media;
+
+import com.example.ekorki.entity.MediaEntity;
+import com.example.ekorki.model.MediaRef;
+import com.example.ekorki.repository.ContentItemRepository;
+import com.example.ekorki.repository.CourseRepository;
+import com.example.ekorki.repository.UserProfileRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+// Kto może pobrać plik z /media/{id}. Ten sam plik może być podpięty w kilku miejscach (deduplikacja),
+// więc sprawdzamy wszystkie odwołania: banery i zdjęcia profilowe są publiczne, treści kursu tylko dla
+// właściciela i kupujących.
+@Service
+@RequiredArgsConstructor
+public class MediaAccessService {
+    private final MediaService mediaService;
+    private final CourseRepository courseRepository;
+    private final UserProfileRepository userProfileRepository;
+    private final ContentItemRepository contentItemRepository;
+
+    // Pusty wynik - plik istnieje, ale użytkownik nie ma do niego dostępu
+    @Transactional(readOnly = true)
+    public Optional<MediaRef> findAccessible(Long mediaId, Long userId) {
+        MediaEntity media = mediaService.getMedia(mediaId);
+
+        List<String> mimeTypes = courseRepository.findBannerMimeTypes(mediaId);
+        if (mimeTypes.isEmpty()) {
+            mimeTypes = userProfileRepository.findPictureMimeTypes(mediaId);
+        }
+        if (mimeTypes.isEmpty() && userId != null) {
+            mimeTypes = contentItemRepository.findAccessibleFileMimeTypes(mediaId, userId);
+        }
+
+        if (mimeTypes.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new MediaRef(media.getId(), media.getSize(), mimeTypes.get(0)));
+    }
+}
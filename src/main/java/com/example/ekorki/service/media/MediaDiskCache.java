@@ -0,0 +1,54 @@
+package com.example.ekorki.service.media;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// Lokalna kopia pliku, z której można wysyłać bez kopiowania przez stertę (sendfile / transferTo).
+// Magazyn lokalny podaje własną ścieżkę; z innych magazynów plik jest pobierany raz do katalogu cache.
+// Nazwa to skrót treści, więc kopia nigdy się nie dezaktualizuje.
+@Component
+public class MediaDiskCache {
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+
+    private final MediaStorage mediaStorage;
+    private final Path root;
+
+    public MediaDiskCache(MediaStorage mediaStorage, @Value("${media.cache.path:media-cache}") String path) {
+        this.mediaStorage = mediaStorage;
+        this.root = Path.of(path).toAbsolutePath().normalize();
+    }
+
+    public Path localFile(String sha256) throws IOException {
+        Optional<Path> local = mediaStorage.localPath(sha256);
+        if (local.isPresent()) {
+            return local.get();
+        }
+
+        if (!SHA256.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("Invalid media hash");
+        }
+        Path cached = root.resolve(sha256);
+        if (Files.exists(cached)) {
+            return cached;
+        }
+
+        Files.createDirectories(root);
+        Path temp = Files.createTempFile(root, "spool-", ".part");
+        try (InputStream content = mediaStorage.open(sha256)) {
+            Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING);
+            // Dwa równoległe pobrania tego samego pliku dają identyczne kopie - wygrywa ostatnie przeniesienie
+            Files.move(temp, cached, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return cached;
+    }
+}
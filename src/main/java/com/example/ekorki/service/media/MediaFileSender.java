@@ -0,0 +1,114 @@
+package com.example.ekorki.service.media;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Wysyłka pliku z dysku bez wczytywania go w całości na stertę.
+// Tomcat z konektorem NIO obsługuje sendfile: ustawiamy atrybuty żądania, a po wyjściu z kontrolera
+// jądro kopiuje plik prosto do gniazda - tylko ta ścieżka jest zero-copy, więc ma pierwszeństwo zawsze, gdy
+// jest dostępna. OffHeapMediaCache zastępuje tylko kopiowanie przez strumień odpowiedzi: małe pliki poniżej
+// progu sendfile i serwery bez sendfile. Skrót treści jest silnym ETagiem -
+// przeglądarka z aktualną kopią dostaje 304, zanim plik zostanie w ogóle odszukany.
+@Component
+@RequiredArgsConstructor
+public class MediaFileSender {
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final MediaDiskCache mediaDiskCache;
+    private final OffHeapMediaCache offHeapMediaCache;
+
+    // Jak w DefaultServlet Tomcata - małe pliki taniej wysłać zwykłym zapisem
+    @Value("${media.sendfile.min-size:49152}")
+    private long sendfileMinSize;
+
+    public void send(HttpServletRequest request, HttpServletResponse response, String sha256, String mimeType) throws IOException {
+        if (new ServletWebRequest(request, response).checkNotModified(sha256)) {
+            return;
+        }
+
+        Path file = mediaDiskCache.localFile(sha256);
+        long length = Files.size(file);
+        long start = 0;
+        long end = length - 1;
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(mimeType != null ? mimeType : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+
+        // If-Range z innym ETagiem (lub datą - Last-Modified nie wysyłamy) oznacza, że klient ma inną wersję: cały plik
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeHeader != null && (ifRange == null || ifRange.equals("\"" + sha256 + "\""))) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                // Kilka zakresów naraz odtwarzacze nie wysyłają - wtedy cały plik, RFC 9110 pozwala zignorować Range
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                    response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (count <= 0 || "HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        if (count >= sendfileMinSize && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toRealPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            // Koniec wyłącznie, w przeciwieństwie do Content-Range
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        // Kanału odpowiedzi nie zamykamy - strumień należy do kontenera
+        WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+        // Bez sendfile wpis w cache oszczędza otwarcie pliku i odczyt z dysku
+        if (offHeapMediaCache.write(file, length, start, count, out)) {
+            return;
+        }
+
+        // Docelowy kanał to opakowany ServletOutputStream, nie gniazdo, więc transferTo nie użyje sendfile:
+        // JDK kopiuje kawałki po 8 KB przez bufor pośredni do tablicy na stercie i dalej do bufora Tomcata.
+        // Zysk względem dawnego readAllBytes to stała pamięć na żądanie, nie brak kopiowania.
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+}
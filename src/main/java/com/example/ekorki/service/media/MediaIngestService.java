@@ -0,0 +1,221 @@
+package com.example.ekorki.service.media;
+
+import com.example.ekorki.entity.MediaEntity;
+import com.example.ekorki.model.MediaStatus;
+import com.example.ekorki.repository.ContentItemRepository;
+import com.example.ekorki.repository.CourseRepository;
+import com.example.ekorki.service.catalog.CourseChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Pliki z formularza kursu przetwarzane w tle. W żądaniu plik jest tylko odkładany do katalogu roboczego,
+// encja dostaje stan PENDING, a transakcja kończy się od razu. Po commicie wirtualny wątek zapisuje plik
+// w magazynie mediów i ustawia READY lub FAILED. Semafor ogranicza liczbę plików przetwarzanych naraz.
+@Service
+@Slf4j
+public class MediaIngestService {
+    private static final Pattern STAGED_FILE = Pattern.compile("(banner|content)-(\\d+)-([0-9a-f-]+)");
+
+    private final MediaService mediaService;
+    private final ImageVariantService imageVariantService;
+    private final ContentItemRepository contentItemRepository;
+    private final CourseRepository courseRepository;
+    private final CacheManager cacheManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Path root;
+    private final long maxSize;
+    private final Semaphore permits;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public enum Kind {
+        BANNER, CONTENT
+    }
+
+    // Nazwa pliku roboczego zawiera rodzaj, id celu i token - po restarcie zadania odtwarzamy z listy plików
+    public record Job(Kind kind, Long targetId, String token) {
+        public String fileName() {
+            return kind.name().toLowerCase(Locale.ROOT) + "-" + targetId + "-" + token;
+        }
+    }
+
+    public MediaIngestService(MediaService mediaService,
+                              ImageVariantService imageVariantService,
+                              ContentItemRepository contentItemRepository,
+                              CourseRepository courseRepository,
+                              CacheManager cacheManager,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${media.ingest.staging-path:media-staging}") String path,
+                              @Value("${media.upload.max-size:100MB}") DataSize maxSize,
+                              @Value("${media.ingest.concurrency:4}") int concurrency) {
+        this.mediaService = mediaService;
+        this.imageVariantService = imageVariantService;
+        this.contentItemRepository = contentItemRepository;
+        this.courseRepository = courseRepository;
+        this.cacheManager = cacheManager;
+        this.eventPublisher = eventPublisher;
+        this.root = Path.of(path).toAbsolutePath().normalize();
+        this.maxSize = maxSize.toBytes();
+        this.permits = new Semaphore(concurrency);
+    }
+
+    // Część multipart przenoszona do katalogu roboczego (dla pliku tymczasowego Tomcata zwykle bez kopiowania);
+    // zadanie startuje dopiero po commicie, więc encja o tym id na pewno już istnieje.
+    // Zwraca token zadania - baner zapisuje go w wierszu kursu, żeby starsze zadanie nie nadpisało nowszego
+    public String stage(Kind kind, Long targetId, MultipartFile file) throws IOException {
+        Files.createDirectories(root);
+        Job job = new Job(kind, targetId, UUID.randomUUID().toString());
+        file.transferTo(root.resolve(job.fileName()));
+        eventPublisher.publishEvent(job);
+        return job.token();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStaged(Job job) {
+        submit(job);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_ROLLBACK)
+    public void onRolledBack(Job job) {
+        deleteStaged(job);
+    }
+
+    // Pliki, których przetwarzania nie dokończono przed zatrzymaniem aplikacji
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.list(root)) {
+            List<Job> jobs = files.map(file -> STAGED_FILE.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(name -> new Job(Kind.valueOf(name.group(1).toUpperCase(Locale.ROOT)),
+                            Long.valueOf(name.group(2)), name.group(3)))
+                    .toList();
+            jobs.forEach(this::submit);
+            if (!jobs.isEmpty()) {
+                log.info("Resumed processing of {} staged media files", jobs.size());
+            }
+        } catch (Exception e) {
+            log.error("Failed to resume staged media processing: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void submit(Job job) {
+        executor.submit(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                process(job);
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    private void process(Job job) {
+        Path staged = root.resolve(job.fileName());
+        try (InputStream content = Files.newInputStream(staged)) {
+            switch (job.kind()) {
+                case BANNER -> processBanner(job, content);
+                case CONTENT -> processContent(job.targetId(), content);
+            }
+        } catch (Exception e) {
+            log.error("Failed to process staged {} media for id {}: {}", job.kind(), job.targetId(), e.getMessage());
+            markFailed(job);
+        } finally {
+            deleteStaged(job);
+        }
+    }
+
+    private void processBanner(Job job, InputStream content) throws IOException {
+        Long courseId = job.targetId();
+        ImageVariantService.StoredImage banner;
+        try (ValidatedUploadStream image = ValidatedUploadStream.open(content, maxSize, "image/")) {
+            banner = imageVariantService.store(image);
+        }
+        // Zadania kończą się w dowolnej kolejności - nowszy baner ma już inny token i wiersz zostaje bez zmian
+        if (courseRepository.completeBanner(courseId, job.token(), banner.media().getId(), banner.media().getSize(),
+                banner.mimeType(), MediaStatus.READY) == 0) {
+            log.info("Skipped stale banner for course {} - a newer banner was uploaded", courseId);
+            return;
+        }
+
+        // Karty kursu i katalog pokazują baner - odświeżamy je tak samo jak po edycji kursu
+        clearCache("courses");
+        eventPublisher.publishEvent(new CourseChangedEvent(courseId));
+    }
+
+    private void processContent(Long contentItemId, InputStream content) throws IOException {
+        MediaEntity media;
+        String mimeType;
+        try (ValidatedUploadStream file = ValidatedUploadStream.open(content, maxSize, "image/", "video/")) {
+            media = mediaService.store(file);
+            mimeType = file.mimeType();
+        }
+        contentItemRepository.completeFile(contentItemId, media.getId(), media.getSize(), mimeType, MediaStatus.READY);
+
+        clearCache("subchapters");
+        clearCache("contentItems");
+    }
+
+    private void markFailed(Job job) {
+        try {
+            switch (job.kind()) {
+                case BANNER -> courseRepository.updateBannerStatus(job.targetId(), job.token(), MediaStatus.FAILED);
+                case CONTENT -> contentItemRepository.updateMediaStatus(job.targetId(), MediaStatus.FAILED);
+            }
+        } catch (Exception e) {
+            log.error("Failed to mark {} media for id {} as failed: {}", job.kind(), job.targetId(), e.getMessage());
+        }
+    }
+
+    private void deleteStaged(Job job) {
+        try {
+            Files.deleteIfExists(root.resolve(job.fileName()));
+        } catch (IOException e) {
+            log.warn("Failed to delete staged media file {}: {}", job.fileName(), e.getMessage());
+        }
+    }
+
+    private void clearCache(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
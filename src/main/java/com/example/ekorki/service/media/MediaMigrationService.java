@@ -0,0 +1,237 @@
+package com.example.ekorki.service.media;
+
+import com.example.ekorki.entity.MediaEntity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// Przeniesienie starych kolumn BYTEA do magazynu mediów w bazach założonych przed jego wprowadzeniem.
+// Bajty czytane kawałkami przez substring(), więc nawet 100 MB wideo nie trafia w całości do pamięci.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MediaMigrationService {
+    private final JdbcTemplate jdbcTemplate;
+    private final MediaService mediaService;
+
+    @Value("${media.migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${media.migration.chunk-size:1048576}")
+    private int chunkSize;
+
+    @Value("${media.migration.batch-size:50}")
+    private int batchSize;
+
+    private record LegacyColumn(String table, String column, String mediaColumn, String sizeColumn) {
+    }
+
+    private static final List<LegacyColumn> LEGACY_COLUMNS = List.of(
+            new LegacyColumn("user_profiles", "picture", "picture_media_id", "picture_size"),
+            new LegacyColumn("courses", "banner", "banner_media_id", "banner_size"),
+            new LegacyColumn("content_items", "file", "file_media_id", "file_size"));
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (!enabled) {
+            return;
+        }
+
+        List<LegacyColumn> pending;
+        try {
+            pending = LEGACY_COLUMNS.stream().filter(this::columnExists).toList();
+            if (pending.isEmpty()) {
+                return;
+            }
+            // Nowe kolumny muszą istnieć zanim aplikacja zacznie zapisywać media - reszta idzie w tle
+            upgradeSchema(pending);
+        } catch (Exception e) {
+            log.error("Failed to prepare media migration: {}", e.getMessage());
+            return;
+        }
+
+        Thread.ofVirtual().name("media-migration").start(() -> pending.forEach(this::migrateColumn));
+    }
+
+    private boolean columnExists(LegacyColumn legacy) {
+        Integer count = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM information_schema.columns
+                WHERE table_schema = 'e_korki' AND table_name = ? AND column_name = ?
+                """, Integer.class, legacy.table(), legacy.column());
+        return count != null && count > 0;
+    }
+
+    // Idempotentne - można uruchamiać przy każdym starcie, dopóki stare kolumny istnieją
+    private void upgradeSchema(List<LegacyColumn> pending) {
+        List<String> statements = new ArrayList<>();
+        statements.add("""
+                CREATE TABLE IF NOT EXISTS e_korki.media (
+                    id BIGSERIAL PRIMARY KEY,
+                    sha256 CHAR(64) NOT NULL UNIQUE,
+                    size BIGINT NOT NULL,
+                    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+                )""");
+        statements.add("""
+                CREATE TABLE IF NOT EXISTS e_korki.media_variants (
+                    id BIGSERIAL PRIMARY KEY,
+                    media_id BIGINT NOT NULL REFERENCES e_korki.media (id) ON DELETE CASCADE,
+                    variant VARCHAR(16) NOT NULL,
+                    variant_media_id BIGINT NOT NULL REFERENCES e_korki.media (id),
+                    width INTEGER NOT NULL,
+                    height INTEGER NOT NULL,
+                    UNIQUE (media_id, variant)
+                )""");
+
+        statements.add("""
+                ALTER TABLE e_korki.courses
+                    ADD COLUMN IF NOT EXISTS banner_status VARCHAR(16) NOT NULL DEFAULT 'READY',
+                    ADD COLUMN IF NOT EXISTS banner_job VARCHAR(36)""");
+
+        for (LegacyColumn legacy : pending) {
+            statements.add("""
+                    ALTER TABLE e_korki.%s
+                        ADD COLUMN IF NOT EXISTS %s BIGINT REFERENCES e_korki.media (id),
+                        ADD COLUMN IF NOT EXISTS %s BIGINT
+                    """.formatted(legacy.table(), legacy.mediaColumn(), legacy.sizeColumn()));
+
+            // Stary warunek wymagał bajtów w kolumnie file - w trakcie migracji wystarczy jedno z dwóch
+            if (legacy.table().equals("content_items")) {
+                statements.add("ALTER TABLE e_korki.content_items DROP CONSTRAINT IF EXISTS content_items_check");
+                statements.add("ALTER TABLE e_korki.content_items DROP CONSTRAINT IF EXISTS content_items_content_check");
+                statements.add("""
+                        ALTER TABLE e_korki.content_items
+                            ADD COLUMN IF NOT EXISTS media_status VARCHAR(16) NOT NULL DEFAULT 'READY'""");
+                statements.add("""
+                        ALTER TABLE e_korki.content_items ADD CONSTRAINT content_items_content_check CHECK (
+                            (type = 'text' AND text IS NOT NULL) OR
+                            (type IN ('video', 'image')
+                                AND (file_media_id IS NOT NULL OR file IS NOT NULL OR media_status <> 'READY')) OR
+                            (type = 'quiz' AND quiz_data IS NOT NULL)
+                        )""");
+            }
+        }
+
+        jdbcTemplate.batchUpdate(statements.toArray(String[]::new));
+    }
+
+    private void migrateColumn(LegacyColumn legacy) {
+        String selectBatch = """
+                SELECT id FROM e_korki.%s
+                WHERE %s IS NOT NULL AND %s IS NULL AND id > ?
+                ORDER BY id
+                LIMIT ?
+                """.formatted(legacy.table(), legacy.column(), legacy.mediaColumn());
+
+        int migrated = 0;
+        int failed = 0;
+        long lastId = 0;
+        List<Long> ids;
+
+        // Stronicowanie po id - wiersz, którego nie udało się przenieść, nie blokuje kolejnych
+        while (!(ids = jdbcTemplate.queryForList(selectBatch, Long.class, lastId, batchSize)).isEmpty()) {
+            for (Long id : ids) {
+                try {
+                    migrateRow(legacy, id);
+                    migrated++;
+                } catch (Exception e) {
+                    failed++;
+                    log.warn("Failed to migrate {}.{} of row {}: {}", legacy.table(), legacy.column(), id, e.getMessage());
+                }
+                lastId = id;
+            }
+        }
+
+        log.info("Migrated {} {}.{} blobs to media storage ({} failed)", migrated, legacy.table(), legacy.column(), failed);
+        if (failed == 0) {
+            log.info("Column {}.{} holds no more data and can be dropped", legacy.table(), legacy.column());
+        }
+    }
+
+    private void migrateRow(LegacyColumn legacy, Long id) throws IOException {
+        Long length = jdbcTemplate.queryForObject(
+                "SELECT octet_length(%s) FROM e_korki.%s WHERE id = ?".formatted(legacy.column(), legacy.table()),
+                Long.class, id);
+        if (length == null) {
+            return;
+        }
+
+        MediaEntity media;
+        try (InputStream content = new ChunkedColumnInputStream(legacy, id, length)) {
+            media = mediaService.store(content);
+        }
+
+        // Zwolnienie starej kolumny w tym samym zapytaniu - wiersz nie wróci do kolejnej partii
+        jdbcTemplate.update("""
+                UPDATE e_korki.%s SET %s = ?, %s = ?, %s = NULL
+                WHERE id = ? AND %s IS NULL
+                """.formatted(legacy.table(), legacy.mediaColumn(), legacy.sizeColumn(), legacy.column(), legacy.mediaColumn()),
+                media.getId(), media.getSize(), id);
+    }
+
+    // Strumień po kawałkach kolumny BYTEA - w pamięci jest najwyżej jeden kawałek
+    private class ChunkedColumnInputStream extends InputStream {
+        private final String selectChunk;
+        private final Long id;
+        private final long length;
+        private long offset;
+        private byte[] chunk = new byte[0];
+        private int position;
+
+        ChunkedColumnInputStream(LegacyColumn legacy, Long id, long length) {
+            this.selectChunk = "SELECT substring(%s FROM ? FOR ?) FROM e_korki.%s WHERE id = ?"
+                    .formatted(legacy.column(), legacy.table());
+            this.id = id;
+            this.length = length;
+        }
+
+        @Override
+        public int read() {
+            if (!fill()) {
+                return -1;
+            }
+            return chunk[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(len, chunk.length - position);
+            System.arraycopy(chunk, position, buffer, off, count);
+            position += count;
+            return count;
+        }
+
+        private boolean fill() {
+            if (position < chunk.length) {
+                return true;
+            }
+            if (offset >= length) {
+                return false;
+            }
+
+            // substring w PostgreSQL liczy bajty od 1
+            byte[] next = jdbcTemplate.queryForObject(selectChunk, byte[].class, offset + 1, chunkSize, id);
+            if (next == null || next.length == 0) {
+                return false;
+            }
+            chunk = next;
+            position = 0;
+            offset += next.length;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.ekorki.service.media;
+
+import com.example.ekorki.dto.media.MediaReferenceDTO;
+import com.example.ekorki.entity.MediaEntity;
+import com.example.ekorki.repository.MediaRepository;
+import com.example.ekorki.repository.MediaVariantRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Zapis i odczyt mediów - encje trzymają tylko id pliku, rozmiar i typ MIME
+@Service
+@RequiredArgsConstructor
+public class MediaService {
+    private final MediaStorage mediaStorage;
+    private final MediaRepository mediaRepository;
+    private final MediaVariantRepository mediaVariantRepository;
+
+    public record StoredUpload(MediaEntity media, String mimeType) {
+    }
+
+    // Część większa od progu multipart leży już w pliku tymczasowym - czytamy ją strumieniem, sprawdzając
+    // typ i rozmiar w locie. Typ MIME pochodzi z treści pliku, nie z nagłówka od klienta.
+    public StoredUpload store(MultipartFile file, long maxBytes, String... allowedTypes) throws IOException {
+        try (ValidatedUploadStream content = ValidatedUploadStream.open(file, maxBytes, allowedTypes)) {
+            return new StoredUpload(store(content), content.mimeType());
+        }
+    }
+
+    // Kopiowanie pliku odbywa się poza transakcją - połączenie z bazą potrzebne jest tylko na wstawienie wiersza
+    public MediaEntity store(InputStream content) throws IOException {
+        MediaStorage.StoredObject stored = mediaStorage.store(content);
+        mediaRepository.insertIfAbsent(stored.sha256(), stored.size());
+        return mediaRepository.findBySha256(stored.sha256())
+                .orElseThrow(() -> new IllegalStateException("Media " + stored.sha256() + " not saved"));
+    }
+
+    @Transactional(readOnly = true)
+    public MediaEntity getMedia(Long mediaId) {
+        return mediaRepository.findById(mediaId)
+                .orElseThrow(() -> new EntityNotFoundException("Media not found"));
+    }
+
+    // Skróty plików dla całej listy naraz - jedno zapytanie na stronę z wieloma plikami
+    @Transactional(readOnly = true)
+    public Map<Long, String> findSha256ByIds(Collection<Long> mediaIds) {
+        return mediaRepository.findAllById(mediaIds).stream()
+                .collect(Collectors.toMap(MediaEntity::getId, MediaEntity::getSha256));
+    }
+
+    public InputStream open(MediaEntity media) throws IOException {
+        return mediaStorage.open(media.getSha256());
+    }
+
+    // Wariant obrazu; pliki sprzed wprowadzenia wariantów nie mają ich, więc zwracamy oryginał
+    @Transactional(readOnly = true)
+    public MediaEntity getVariant(MediaEntity media, ImageVariant variant) {
+        if (variant == null || variant == ImageVariant.FULL) {
+            return media;
+        }
+        return mediaVariantRepository.findByMediaIdAndVariant(media.getId(), variant.key())
+                .flatMap(found -> mediaRepository.findById(found.getVariantMediaId()))
+                .orElse(media);
+    }
+
+    public static String variantUrl(Long mediaId, ImageVariant variant) {
+        return mediaId != null ? "/media/" + mediaId + "?variant=" + variant.key() : null;
+    }
+
+    // Id pliku zmienia się tylko ze zmianą treści banera, więc przeglądarka może trzymać baner w cache
+    public static String bannerUrl(Long courseId, Long bannerMediaId, ImageVariant variant) {
+        if (bannerMediaId == null) {
+            return null;
+        }
+        return "/course/banner/" + courseId + "?v=" + bannerMediaId + "&variant=" + variant.key();
+    }
+
+    public static MediaReferenceDTO reference(Long mediaId, String mimeType, Long size) {
+        return MediaReferenceDTO.builder()
+                .id(mediaId)
+                .url("/media/" + mediaId)
+                .mimeType(mimeType)
+                .size(size)
+                .build();
+    }
+}
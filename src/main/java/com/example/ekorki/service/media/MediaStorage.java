@@ -0,0 +1,28 @@
+package com.example.ekorki.service.media;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+// Magazyn bajtów adresowany skrótem SHA-256 treści - implementacja lokalna, w przyszłości np. S3
+public interface MediaStorage {
+
+    record StoredObject(String sha256, long size) {
+    }
+
+    // Zapisuje strumień, licząc skrót w trakcie kopiowania; istniejący plik o tym samym skrócie nie jest nadpisywany.
+    // Strumień wejściowy nie jest zamykany.
+    StoredObject store(InputStream content) throws IOException;
+
+    InputStream open(String sha256) throws IOException;
+
+    // Ścieżka na lokalnym dysku, jeśli magazyn ją ma - pozwala wysyłać plik przez sendfile
+    default Optional<Path> localPath(String sha256) {
+        return Optional.empty();
+    }
+
+    boolean exists(String sha256);
+
+    void delete(String sha256) throws IOException;
+}
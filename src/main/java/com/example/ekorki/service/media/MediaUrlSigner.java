@@ -0,0 +1,99 @@
+package com.example.ekorki.service.media;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// Podpisane adresy plików kursu. Dostęp sprawdza getSubchapterDetails, a adres niesie wszystko,
+// czego potrzeba do wysłania pliku (skrót treści, typ MIME, termin ważności) - pobieranie i każde
+// żądanie Range weryfikują tylko podpis HMAC, bez ładowania użytkownika i zapytań o zakup kursu.
+@Component
+@Slf4j
+public class MediaUrlSigner {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+    private final long bucketSeconds;
+
+    public record SignedMedia(Long contentItemId, Long userId, long expiresAt, String sha256, String mimeType) {
+    }
+
+    public MediaUrlSigner(@Value("${media.signed-url.secret:}") String secret,
+                          @Value("${media.signed-url.ttl:6h}") Duration ttl,
+                          @Value("${media.signed-url.bucket:1h}") Duration bucket) throws GeneralSecurityException {
+        byte[] keyBytes;
+        if (secret.isBlank()) {
+            // Jak klucz JWT - losowy przy starcie; przy kilku instancjach trzeba ustawić wspólny sekret
+            log.warn("media.signed-url.secret not set, signed media URLs will not survive a restart");
+            keyBytes = KeyGenerator.getInstance(ALGORITHM).generateKey().getEncoded();
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.ttlSeconds = ttl.toSeconds();
+        this.bucketSeconds = Math.max(1, bucket.toSeconds());
+    }
+
+    // Termin ważności zaokrąglany w górę do pełnego przedziału - w jego obrębie ten sam użytkownik
+    // dostaje ten sam adres, więc przeglądarka i CDN mogą trzymać plik w cache
+    public String sign(Long contentItemId, Long userId, String sha256, String mimeType) {
+        long minimumExpiry = Instant.now().getEpochSecond() + ttlSeconds;
+        long expiresAt = (minimumExpiry + bucketSeconds - 1) / bucketSeconds * bucketSeconds;
+
+        String payload = contentItemId + ":" + userId + ":" + expiresAt + ":" + sha256 + ":" + mimeType;
+        String encoded = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return "/media/signed/" + encoded + "." + ENCODER.encodeToString(hmac(encoded));
+    }
+
+    public Optional<SignedMedia> verify(String token) {
+        int separator = token.indexOf('.');
+        if (separator < 0) {
+            return Optional.empty();
+        }
+
+        try {
+            String encoded = token.substring(0, separator);
+            byte[] signature = DECODER.decode(token.substring(separator + 1));
+            if (!MessageDigest.isEqual(hmac(encoded), signature)) {
+                return Optional.empty();
+            }
+
+            String[] fields = new String(DECODER.decode(encoded), StandardCharsets.UTF_8).split(":", 5);
+            if (fields.length != 5 || !SHA256.matcher(fields[3]).matches()) {
+                return Optional.empty();
+            }
+
+            SignedMedia media = new SignedMedia(Long.valueOf(fields[0]), Long.valueOf(fields[1]),
+                    Long.parseLong(fields[2]), fields[3], fields[4]);
+            return media.expiresAt() > Instant.now().getEpochSecond() ? Optional.of(media) : Optional.empty();
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private byte[] hmac(String payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC not available", e);
+        }
+    }
+}
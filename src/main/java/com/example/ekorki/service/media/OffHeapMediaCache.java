@@ -0,0 +1,197 @@
+package com.example.ekorki.service.media;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Często pobierane pliki (banery, krótkie filmy) trzymane poza stertą w MemorySegment - nie obciążają
+// starej generacji i GC. Każdy wpis ma własną Arenę zwalnianą przy usunięciu z LRU, a licznik odwołań
+// pilnuje, żeby pamięć nie zniknęła w trakcie wysyłania. Wpis dostaje się do cache przy drugim żądaniu,
+// więc pliki pobrane raz nie wypychają popularnych. Ścieżka pliku to skrót treści - wpis nigdy się nie dezaktualizuje.
+@Component
+public class OffHeapMediaCache {
+    private final long maxBytes;
+    private final long maxEntryBytes;
+
+    // Kolejność dostępu - pierwszy wpis to najdawniej używany
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Boolean> seen;
+    private long residentBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public OffHeapMediaCache(@Value("${media.offheap-cache.max-size:256MB}") DataSize maxSize,
+                             @Value("${media.offheap-cache.max-entry-size:16MB}") DataSize maxEntrySize,
+                             @Value("${media.offheap-cache.admission-window:10000}") int admissionWindow,
+                             MeterRegistry meterRegistry) {
+        this.maxBytes = maxSize.toBytes();
+        this.maxEntryBytes = Math.min(maxEntrySize.toBytes(), maxBytes);
+        this.seen = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > admissionWindow;
+            }
+        };
+
+        Gauge.builder("media.offheap.cache.resident", this, OffHeapMediaCache::residentBytes)
+                .baseUnit("bytes")
+                .description("Off-heap memory held by cached media files")
+                .register(meterRegistry);
+        Gauge.builder("media.offheap.cache.entries", this, OffHeapMediaCache::size)
+                .register(meterRegistry);
+        Gauge.builder("media.offheap.cache.hit.ratio", this, OffHeapMediaCache::hitRatio)
+                .register(meterRegistry);
+        FunctionCounter.builder("media.offheap.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("media.offheap.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    // Wysyła fragment pliku z pamięci; false oznacza, że plik nie trafia do cache i wysyła go wywołujący
+    public boolean write(Path file, long fileSize, long position, long count, WritableByteChannel out) throws IOException {
+        if (fileSize <= 0 || fileSize > maxEntryBytes) {
+            return false;
+        }
+
+        String key = file.toString();
+        Entry entry = acquire(key);
+        if (entry != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            if (!admit(key)) {
+                return false;
+            }
+            entry = load(key, file, fileSize);
+        }
+
+        try {
+            ByteBuffer buffer = entry.segment.asSlice(position, count).asByteBuffer();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            return true;
+        } finally {
+            entry.release();
+        }
+    }
+
+    public synchronized long residentBytes() {
+        return residentBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public double hitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total > 0 ? (double) hitCount / total : 0;
+    }
+
+    @PreDestroy
+    public synchronized void clear() {
+        entries.values().forEach(Entry::release);
+        entries.clear();
+        residentBytes = 0;
+    }
+
+    private synchronized Entry acquire(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            // Wpis w mapie ma zawsze co najmniej odwołanie samego cache, więc nie mógł zostać zwolniony
+            entry.references.incrementAndGet();
+        }
+        return entry;
+    }
+
+    private synchronized boolean admit(String key) {
+        return seen.put(key, Boolean.TRUE) != null;
+    }
+
+    // Plik czytany do pamięci poza blokadą; równoległe wczytanie tego samego pliku zostaje odrzucone
+    private Entry load(String key, Path file, long fileSize) throws IOException {
+        Arena arena = Arena.ofShared();
+        Entry loaded;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MemorySegment segment = arena.allocate(fileSize);
+            ByteBuffer buffer = segment.asByteBuffer();
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Media file shorter than expected: " + file);
+                }
+            }
+            loaded = new Entry(arena, segment);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+
+        synchronized (this) {
+            Entry existing = entries.get(key);
+            if (existing != null) {
+                loaded.release();
+                existing.references.incrementAndGet();
+                return existing;
+            }
+
+            // Odwołanie dla wywołującego przed sprzątaniem - nowy wpis może wypaść od razu przy przepełnieniu
+            loaded.references.incrementAndGet();
+            entries.put(key, loaded);
+            residentBytes += fileSize;
+            evict();
+            return loaded;
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (residentBytes > maxBytes && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            residentBytes -= entry.segment.byteSize();
+            entry.release();
+        }
+    }
+
+    private static final class Entry {
+        private final Arena arena;
+        private final MemorySegment segment;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private Entry(Arena arena, MemorySegment segment) {
+            this.arena = arena;
+            this.segment = segment;
+        }
+
+        // Ostatnie odwołanie zwalnia pamięć natychmiast, bez czekania na GC
+        private void release() {
+            if (references.decrementAndGet() == 0) {
+                arena.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.ekorki.service.media;
+
+import com.example.ekorki.dto.upload.UploadSessionCreateDTO;
+import com.example.ekorki.dto.upload.UploadSessionDTO;
+import com.example.ekorki.entity.MediaEntity;
+import com.example.ekorki.entity.UploadSessionEntity;
+import com.example.ekorki.exception.ApiException;
+import com.example.ekorki.repository.UploadSessionRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+// Wysyłanie plików w kawałkach: sesja -> PUT kawałka N -> zakończenie. Kawałki leżą na dysku,
+// więc zerwane połączenie kosztuje tylko ponowne wysłanie brakujących kawałków. Złożony plik trafia
+// do magazynu mediów, a formularz kursu odwołuje się do niego samym id zamiast nieść plik w multipart.
+@Service
+@Slf4j
+public class UploadSessionService {
+    private static final String CHUNK_SUFFIX = ".part";
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final MediaService mediaService;
+    private final Path root;
+    private final long maxSize;
+    private final int chunkSize;
+    private final Duration ttl;
+
+    public UploadSessionService(UploadSessionRepository uploadSessionRepository,
+                                MediaService mediaService,
+                                @Value("${media.upload.path:media-uploads}") String path,
+                                @Value("${media.upload.max-size:100MB}") DataSize maxSize,
+                                @Value("${media.upload.chunk-size:8MB}") DataSize chunkSize,
+                                @Value("${media.upload.session-ttl:24h}") Duration ttl) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.mediaService = mediaService;
+        this.root = Path.of(path).toAbsolutePath().normalize();
+        this.maxSize = maxSize.toBytes();
+        this.chunkSize = Math.toIntExact(chunkSize.toBytes());
+        this.ttl = ttl;
+    }
+
+    public UploadSessionDTO create(UploadSessionCreateDTO createDTO, Long userId) {
+        if (createDTO.totalSize() > maxSize) {
+            throw new ApiException("File size exceeds maximum limit of " + (maxSize >> 20) + "MB");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        UploadSessionEntity session = uploadSessionRepository.save(UploadSessionEntity.builder()
+                .id(UUID.randomUUID().toString())
+                .userId(userId)
+                .totalSize(createDTO.totalSize())
+                .chunkSize(chunkSize)
+                .sha256(createDTO.sha256().toLowerCase(Locale.ROOT))
+                .status(UploadSessionEntity.Status.OPEN)
+                .createdAt(now)
+                .expiresAt(now.plus(ttl))
+                .build());
+        return mapToDTO(session, List.of());
+    }
+
+    public UploadSessionDTO get(String sessionId, Long userId) throws IOException {
+        UploadSessionEntity session = findSession(sessionId, userId);
+        return mapToDTO(session, session.getStatus() == UploadSessionEntity.Status.OPEN
+                ? receivedChunks(session) : List.of());
+    }
+
+    // Kawałek zapisujemy obok i podmieniamy atomowo - powtórzony PUT tego samego kawałka jest bezpieczny,
+    // a przerwany zapis nie zostawia uciętego pliku
+    public void writeChunk(String sessionId, Long userId, int index, InputStream body) throws IOException {
+        UploadSessionEntity session = findOpenSession(sessionId, userId);
+        if (index < 0 || index >= session.chunkCount()) {
+            throw new ApiException("Chunk index out of range: " + index);
+        }
+
+        long expected = session.chunkLength(index);
+        Path directory = Files.createDirectories(sessionDirectory(session));
+        Path temp = Files.createTempFile(directory, index + "-", ".tmp");
+        try {
+            long written;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                written = copy(body, out, expected + 1);
+            }
+            if (written != expected) {
+                throw new ApiException("Chunk " + index + " must have " + expected + " bytes, received " + written);
+            }
+            Files.move(temp, chunkFile(session, index), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Ponowne zakończenie ukończonej sesji zwraca ten sam wynik - klient może bezpiecznie ponowić żądanie
+    public UploadSessionDTO complete(String sessionId, Long userId) throws IOException {
+        UploadSessionEntity session = findSession(sessionId, userId);
+        if (session.getStatus() == UploadSessionEntity.Status.COMPLETED) {
+            return mapToDTO(session, List.of());
+        }
+        if (session.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new ApiException("Upload session expired");
+        }
+
+        List<Integer> received = receivedChunks(session);
+        if (received.size() != session.chunkCount()) {
+            throw new ApiException("Missing chunks: received " + received.size() + " of " + session.chunkCount());
+        }
+
+        // Najpierw sprawdzamy sumę kontrolną, żeby uszkodzony plik nie trafił do magazynu mediów
+        String sha256 = checksum(session);
+        if (!sha256.equals(session.getSha256())) {
+            throw new ApiException("Checksum mismatch - upload the file again");
+        }
+
+        try (ValidatedUploadStream content = ValidatedUploadStream.open(
+                assembled(session), maxSize, "image/", "video/")) {
+            MediaEntity media = mediaService.store(content);
+            session.setMediaId(media.getId());
+            session.setMimeType(content.mimeType());
+        }
+
+        session.setStatus(UploadSessionEntity.Status.COMPLETED);
+        uploadSessionRepository.save(session);
+        deleteChunks(session);
+
+        return mapToDTO(session, List.of());
+    }
+
+    // Plik z sesji może wskazać tylko ten, kto go wysłał
+    public UploadSessionEntity findCompletedUpload(Long mediaId, Long userId) {
+        return uploadSessionRepository.findFirstByUserIdAndMediaIdAndStatus(
+                        userId, mediaId, UploadSessionEntity.Status.COMPLETED)
+                .orElseThrow(() -> new ApiException("Uploaded file not found: " + mediaId));
+    }
+
+    private UploadSessionEntity findSession(String sessionId, Long userId) {
+        return uploadSessionRepository.findById(sessionId)
+                .filter(session -> session.getUserId().equals(userId))
+                .orElseThrow(() -> new EntityNotFoundException("Upload session not found"));
+    }
+
+    private UploadSessionEntity findOpenSession(String sessionId, Long userId) {
+        UploadSessionEntity session = findSession(sessionId, userId);
+        if (session.getStatus() != UploadSessionEntity.Status.OPEN) {
+            throw new ApiException("Upload session already completed");
+        }
+        if (session.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new ApiException("Upload session expired");
+        }
+        return session;
+    }
+
+    // Porzucone sesje wszystkich użytkowników - kawałki nie czekają na to, aż ich właściciel założy kolejną sesję
+    @Scheduled(fixedDelayString = "${media.upload.sweep-interval:PT15M}", initialDelayString = "${media.upload.sweep-interval:PT15M}")
+    public void removeExpired() {
+        List<UploadSessionEntity> expired = uploadSessionRepository.findByStatusAndExpiresAtBefore(
+                UploadSessionEntity.Status.OPEN, LocalDateTime.now());
+        for (UploadSessionEntity session : expired) {
+            try {
+                deleteChunks(session);
+                uploadSessionRepository.delete(session);
+            } catch (IOException e) {
+                log.warn("Failed to remove expired upload session {}: {}", session.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private List<Integer> receivedChunks(UploadSessionEntity session) throws IOException {
+        Path directory = sessionDirectory(session);
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(CHUNK_SUFFIX))
+                    .map(name -> Integer.parseInt(name.substring(0, name.length() - CHUNK_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private String checksum(UploadSessionEntity session) throws IOException {
+        try (DigestInputStream content = new DigestInputStream(assembled(session), sha256Digest())) {
+            content.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(content.getMessageDigest().digest());
+        }
+    }
+
+    // Kawałki czytane po kolei jako jeden strumień - kolejny plik otwierany dopiero po wyczerpaniu poprzedniego
+    private InputStream assembled(UploadSessionEntity session) {
+        return new SequenceInputStream(new Enumeration<>() {
+            private int next;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next < session.chunkCount();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                if (!hasMoreElements()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    return Files.newInputStream(chunkFile(session, next++));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    private void deleteChunks(UploadSessionEntity session) throws IOException {
+        FileSystemUtils.deleteRecursively(sessionDirectory(session));
+    }
+
+    private Path sessionDirectory(UploadSessionEntity session) {
+        return root.resolve(session.getId());
+    }
+
+    private Path chunkFile(UploadSessionEntity session, int index) {
+        return sessionDirectory(session).resolve(index + CHUNK_SUFFIX);
+    }
+
+    private UploadSessionDTO mapToDTO(UploadSessionEntity session, List<Integer> receivedChunks) {
+        return UploadSessionDTO.builder()
+                .id(session.getId())
+                .status(session.getStatus().name())
+                .totalSize(session.getTotalSize())
+                .chunkSize(session.getChunkSize())
+                .chunkCount(session.chunkCount())
+                .receivedChunks(receivedChunks)
+                .expiresAt(session.getExpiresAt())
+                .media(session.getMediaId() != null
+                        ? MediaService.reference(session.getMediaId(), session.getMimeType(), session.getTotalSize())
+                        : null)
+                .build();
+    }
+
+    // Kopiuje co najwyżej limit bajtów - za długie ciało żądania nie zapełni dysku
+    private static long copy(InputStream in, OutputStream out, long limit) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int read;
+        while (total < limit && (read = in.read(buffer, 0, (int) Math.min(buffer.length, limit - total))) > 0) {
+            out.write(buffer, 0, read);
+            total += read;
+        }
+        return total;
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
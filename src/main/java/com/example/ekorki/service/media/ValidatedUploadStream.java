@@ -0,0 +1,161 @@
+package com.example.ekorki.service.media;
+
+import com.example.ekorki.exception.ApiException;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+// Strumień wysyłanego pliku sprawdzany w locie: typ rozpoznany po pierwszych bajtach (nie po nagłówku
+// Content-Type od klienta) i limit rozmiaru liczony podczas czytania. Pamięć nie zależy od rozmiaru pliku.
+public class ValidatedUploadStream extends FilterInputStream {
+    private static final int HEADER_LENGTH = 16;
+
+    private final long maxBytes;
+    private final String mimeType;
+    private long count;
+
+    private ValidatedUploadStream(InputStream content, long maxBytes, String mimeType) {
+        super(content);
+        this.maxBytes = maxBytes;
+        this.mimeType = mimeType;
+    }
+
+    // allowedTypes to prefiksy typów MIME, np. "image/" lub "video/"
+    public static ValidatedUploadStream open(MultipartFile file, long maxBytes, String... allowedTypes) throws IOException {
+        if (file.getSize() > maxBytes) {
+            throw new ApiException("File size exceeds maximum limit of " + (maxBytes >> 20) + "MB");
+        }
+        return open(file.getInputStream(), maxBytes, allowedTypes);
+    }
+
+    // Dowolny strumień, np. plik złożony z kawałków sesji wysyłania; zamknięcie zamyka też źródło
+    public static ValidatedUploadStream open(InputStream source, long maxBytes, String... allowedTypes) throws IOException {
+        BufferedInputStream content = new BufferedInputStream(source);
+        try {
+            content.mark(HEADER_LENGTH);
+            byte[] header = content.readNBytes(HEADER_LENGTH);
+            content.reset();
+
+            String mimeType = sniff(header);
+            if (mimeType == null || Arrays.stream(allowedTypes).noneMatch(mimeType::startsWith)) {
+                throw new ApiException("Unsupported file content");
+            }
+            return new ValidatedUploadStream(content, maxBytes, mimeType);
+        } catch (IOException | RuntimeException e) {
+            content.close();
+            throw e;
+        }
+    }
+
+    public String mimeType() {
+        return mimeType;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        if (value >= 0) {
+            count(1);
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read > 0) {
+            count(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    // Rozmiar z nagłówka części może kłamać - liczymy faktycznie przeczytane bajty
+    private void count(long bytes) {
+        count += bytes;
+        if (count > maxBytes) {
+            throw new ApiException("File size exceeds maximum limit of " + (maxBytes >> 20) + "MB");
+        }
+    }
+
+    static String sniff(byte[] header) {
+        if (startsWith(header, 0, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(header, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (ascii(header, 0, "GIF87a") || ascii(header, 0, "GIF89a")) {
+            return "image/gif";
+        }
+        if (ascii(header, 0, "BM")) {
+            return "image/bmp";
+        }
+        if (ascii(header, 0, "RIFF") && ascii(header, 8, "WEBP")) {
+            return "image/webp";
+        }
+        if (ascii(header, 0, "RIFF") && ascii(header, 8, "AVI ")) {
+            return "video/x-msvideo";
+        }
+        if (ascii(header, 4, "ftyp")) {
+            return isoMediaType(header);
+        }
+        if (startsWith(header, 0, 0x1A, 0x45, 0xDF, 0xA3)) {
+            return "video/webm";
+        }
+        if (ascii(header, 0, "OggS")) {
+            return "video/ogg";
+        }
+        return null;
+    }
+
+    // Kontener ISO BMFF niesie też obrazy HEIF/AVIF - marka główna decyduje, czy to obraz czy film
+    private static String isoMediaType(byte[] header) {
+        if (ascii(header, 8, "qt  ")) {
+            return "video/quicktime";
+        }
+        if (ascii(header, 8, "avif") || ascii(header, 8, "avis")) {
+            return "image/avif";
+        }
+        for (String brand : new String[]{"heic", "heix", "heim", "heis", "hevc", "hevx"}) {
+            if (ascii(header, 8, brand)) {
+                return "image/heic";
+            }
+        }
+        if (ascii(header, 8, "mif1") || ascii(header, 8, "msf1")) {
+            return "image/heif";
+        }
+        return "video/mp4";
+    }
+
+    private static boolean startsWith(byte[] header, int offset, int... expected) {
+        if (header.length < offset + expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if ((header[offset + i] & 0xFF) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean ascii(byte[] header, int offset, String expected) {
+        return startsWith(header, offset, expected.chars().toArray());
+    }
+}
@@ -11,6 +11,9 @@ TIMEZONE TO 'Europe/Warsaw';
 SET
 search_path TO e_korki;
 
+-- Rozszerzenie trigramowe (wyszukiwanie z literówkami i indeksowany LIKE '%...%')
+CREATE EXTENSION IF NOT EXISTS pg_trgm WITH SCHEMA public;
+
 -- Usuwanie tabel jeśli istnieją
 DROP TABLE IF EXISTS
     users,
@@ -27,7 +30,10 @@ DROP TABLE IF EXISTS
     teacher_profiles,
     tasks,
     login_attempts,
-    payment_history CASCADE;
+    payment_history,
+    media,
+    media_variants,
+    upload_sessions CASCADE;
 
 -- Tworzenie tabeli Users
 CREATE TABLE users
@@ -38,9 +44,58 @@ CREATE TABLE users
     points        INTEGER   DEFAULT 0,
     verified      BOOLEAN   DEFAULT FALSE,
     blocked       BOOLEAN   DEFAULT FALSE,
-    mfa           BOOLEAN   DEFAULT FALSE
+    mfa           BOOLEAN   DEFAULT FALSE,
+    -- Wersja w tokenach dostępu - zmiana ról unieważnia tokeny wydane wcześniej
+    token_version            INTEGER NOT NULL DEFAULT 0,
+    token_version_changed_at TIMESTAMP,
+    -- Wersja zbioru kursów użytkownika (własne i kupione) dla ETagów
+    courses_version          BIGINT  NOT NULL DEFAULT 0
+);
+
+-- Okresowe dociąganie wersji tokenów zmienionych na innych instancjach
+CREATE INDEX idx_users_token_version_changed_at ON users (token_version_changed_at)
+    WHERE token_version_changed_at IS NOT NULL;
+
+-- Pliki multimedialne adresowane skrótem SHA-256 - bajty leżą w magazynie mediów, nie w bazie
+CREATE TABLE media
+(
+    id         BIGSERIAL PRIMARY KEY,
+    sha256     CHAR(64)  NOT NULL UNIQUE,
+    size       BIGINT    NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Pomniejszone warianty obrazów (thumb, card) - głównym plikiem jest wariant full
+CREATE TABLE media_variants
+(
+    id               BIGSERIAL PRIMARY KEY,
+    media_id         BIGINT      NOT NULL REFERENCES media (id) ON DELETE CASCADE,
+    variant          VARCHAR(16) NOT NULL,
+    variant_media_id BIGINT      NOT NULL REFERENCES media (id),
+    width            INTEGER     NOT NULL,
+    height           INTEGER     NOT NULL,
+    UNIQUE (media_id, variant)
 );
 
+-- Sesje wysyłania plików w kawałkach - kawałki leżą na dysku, wiersz trzyma stan i wynik składania
+CREATE TABLE upload_sessions
+(
+    id         VARCHAR(36) PRIMARY KEY,
+    user_id    BIGINT       NOT NULL REFERENCES users (id),
+    total_size BIGINT       NOT NULL,
+    chunk_size INTEGER      NOT NULL,
+    sha256     CHAR(64)     NOT NULL,
+    status     VARCHAR(16)  NOT NULL,
+    media_id   BIGINT       DEFAULT NULL REFERENCES media (id),
+    mime_type  VARCHAR(255) DEFAULT NULL,
+    created_at TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP    NOT NULL
+);
+
+CREATE INDEX idx_upload_sessions_user_media ON upload_sessions (user_id, media_id);
+-- Okresowe sprzątanie porzuconych sesji
+CREATE INDEX idx_upload_sessions_open_expires ON upload_sessions (expires_at) WHERE status = 'OPEN';
+
 -- Tworzenie tabeli User_profile
 CREATE TABLE user_profiles
 (
@@ -49,11 +104,16 @@ CREATE TABLE user_profiles
     user_id          BIGINT    NOT NULL REFERENCES users (id),
     description      VARCHAR(500) DEFAULT NULL,
     created_at       DATE         DEFAULT CURRENT_TIMESTAMP,
-    picture          BYTEA        DEFAULT NULL,
+    picture_media_id BIGINT       DEFAULT NULL REFERENCES media (id),
+    picture_size     BIGINT       DEFAULT NULL,
     mime_type        VARCHAR(255) DEFAULT NULL,
-    badges_visible   BOOLEAN    DEFAULT TRUE
+    badges_visible   BOOLEAN    DEFAULT TRUE,
+    -- Wersja profilu dla ETagów, podbijana razem ze zmianą
+    content_version  BIGINT       NOT NULL DEFAULT 0
 );
 
+CREATE INDEX idx_user_profiles_user ON user_profiles (user_id);
+
 CREATE TABLE refresh_tokens
 (
     id         BIGSERIAL PRIMARY KEY,
@@ -79,7 +139,11 @@ CREATE TABLE courses
 (
     id  BIGSERIAL PRIMARY KEY,
     name VARCHAR(255) NOT NULL,
-    banner BYTEA,
+    banner_media_id BIGINT REFERENCES media(id),
+    banner_size BIGINT,
+    banner_status VARCHAR(16) NOT NULL DEFAULT 'READY',
+    -- Token ostatniego zadania przetwarzania banera - starsze zadanie nie nadpisze nowszego banera
+    banner_job VARCHAR(36),
     mime_type VARCHAR(255),
     review DECIMAL,
     price DECIMAL(10,2) NOT NULL,
@@ -89,9 +153,27 @@ CREATE TABLE courses
     review_number INTEGER DEFAULT 0,
     description TEXT,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    search_vector TSVECTOR,
+    -- Wersja kursu dla ETagów, podbijana razem ze zmianą kursu lub jego ocen
+    content_version BIGINT NOT NULL DEFAULT 0
 );
 
+-- Ważony wektor wyszukiwania: nazwa (A), tagi (B), opis (C) - utrzymywany przez trigger
+CREATE OR REPLACE FUNCTION courses_search_vector_update() RETURNS trigger AS $$
+BEGIN
+    NEW.search_vector :=
+        setweight(to_tsvector('simple', COALESCE(NEW.name, '')), 'A') ||
+        setweight(to_tsvector('simple', COALESCE(array_to_string(NEW.tags, ' '), '')), 'B') ||
+        setweight(to_tsvector('simple', COALESCE(NEW.description, '')), 'C');
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER courses_search_vector_trigger
+    BEFORE INSERT OR UPDATE OF name, tags, description ON courses
+    FOR EACH ROW EXECUTE FUNCTION courses_search_vector_update();
+
 CREATE TABLE chapters
 (
     id        BIGSERIAL PRIMARY KEY,
@@ -122,14 +204,17 @@ CREATE TABLE content_items (
     italics BOOLEAN,
     underline BOOLEAN,
     -- File specific fields
-    file BYTEA,
+    file_media_id BIGINT REFERENCES media(id),
+    file_size BIGINT,
     mime_type VARCHAR(255),
+    -- PENDING do zakończenia przetwarzania pliku w tle, wtedy file_media_id jest jeszcze pusty
+    media_status VARCHAR(16) NOT NULL DEFAULT 'READY',
     quiz_data JSONB, -- Stores quiz questions and answers in this format:
 
 
-    CHECK (
+    CONSTRAINT content_items_content_check CHECK (
         (type = 'text' AND text IS NOT NULL) OR
-        (type IN ('video', 'image') AND file IS NOT NULL) OR
+        (type IN ('video', 'image') AND (file_media_id IS NOT NULL OR media_status <> 'READY')) OR
         (type = 'quiz' AND quiz_data IS NOT NULL)
         )
 
@@ -228,6 +313,8 @@ CREATE INDEX IF NOT EXISTS idx_reviews_created_at ON reviews(created_at);
 CREATE INDEX IF NOT EXISTS idx_reviews_user ON reviews(user_id);
 
 CREATE INDEX IF NOT EXISTS courses_name_idx ON courses(name);
+CREATE INDEX IF NOT EXISTS courses_search_vector_idx ON courses USING gin(search_vector);
+CREATE INDEX IF NOT EXISTS courses_name_trgm_idx ON courses USING gin(LOWER(name) public.gin_trgm_ops);
 CREATE INDEX IF NOT EXISTS courses_tags_idx ON courses USING gin(tags);
 CREATE INDEX IF NOT EXISTS courses_review_idx ON courses(review);
 CREATE INDEX IF NOT EXISTS courses_review_number_idx ON courses(review_number);
@@ -235,6 +322,11 @@ CREATE INDEX IF NOT EXISTS idx_courses_user ON courses(user_id);
 CREATE INDEX IF NOT EXISTS idx_courses_dates ON courses(created_at, updated_at);
 CREATE INDEX IF NOT EXISTS idx_courses_price ON courses(price);
 
+-- Indeksy pod stronicowanie kursorem (klucz sortowania, id)
+CREATE INDEX IF NOT EXISTS idx_courses_created_keyset ON courses(created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_courses_review_keyset ON courses((COALESCE(review, 0)) DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_courses_review_number_keyset ON courses((COALESCE(review_number, 0)) DESC, id DESC);
+
 CREATE INDEX IF NOT EXISTS chapters_course_id_idx ON chapters(course_id);
 CREATE INDEX IF NOT EXISTS subchapters_chapter_id_idx ON subchapters(chapter_id);
 
@@ -242,6 +334,8 @@ CREATE INDEX IF NOT EXISTS subchapters_chapter_id_idx ON subchapters(chapter_id)
 
 CREATE INDEX IF NOT EXISTS idx_login_attempts_email ON e_korki.login_attempts(email, attempt_time);
 CREATE INDEX IF NOT EXISTS idx_login_attempts_ip ON e_korki.login_attempts(ip, attempt_time);
+-- Odbudowa liczników limitu logowań po starcie czyta tylko nieudane próby z ostatnich minut
+CREATE INDEX IF NOT EXISTS idx_login_attempts_failed_time ON e_korki.login_attempts(attempt_time) WHERE successful = false;
 
 CREATE INDEX IF NOT EXISTS idx_payment_history_user ON payment_history(user_id);
 
@@ -0,0 +1,96 @@
+package com.example.ekorki.benchmark;
+
+import com.example.ekorki.entity.RoleEntity;
+import com.example.ekorki.entity.UserEntity;
+import com.example.ekorki.service.JWTService;
+import com.example.ekorki.service.JwtKeyRing;
+import com.example.ekorki.service.TokenVersionService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+
+import javax.crypto.KeyGenerator;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Koszt uwierzytelnienia jednego żądania w JWTFilter: dawna ścieżka (klucz dekodowany i parser budowany
+// przy każdym wywołaniu, trzy pełne weryfikacje podpisu) kontra JWTService.verify bez cache i z cache
+// zweryfikowanych tokenów. Dawna ścieżka robiła jeszcze dwa zapytania do bazy - tu nie są liczone.
+// Uruchomienie: mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt, potem
+// java --enable-preview -cp target/test-classes:target/classes:$(cat cp.txt) com.example.ekorki.benchmark.JwtVerificationBenchmark
+public class JwtVerificationBenchmark {
+    private static final int WARMUP = 50_000;
+    private static final int ROUNDS = 200_000;
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        String secret = Base64.getEncoder().encodeToString(KeyGenerator.getInstance("HmacSHA256").generateKey().getEncoded());
+        String legacyToken = Jwts.builder()
+                .setSubject("student@example.com")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret)))
+                .compact();
+
+        UserEntity user = new UserEntity();
+        user.setId(42L);
+        user.setEmail("student@example.com");
+        RoleEntity role = new RoleEntity();
+        role.setRole(RoleEntity.Role.USER);
+        user.getRoles().add(role);
+
+        TokenVersionService tokenVersions = new TokenVersionService(null, event -> {
+        });
+        JwtKeyRing keyRing = new JwtKeyRing(secret, List.of(), "", Duration.ofDays(7), Duration.ofMinutes(5),
+                Duration.ofMinutes(1), 3_600_000);
+        JWTService uncached = new JWTService(keyRing, tokenVersions, 3_600_000, 0);
+        JWTService cached = new JWTService(keyRing, tokenVersions, 3_600_000, 10_000);
+        String uncachedToken = uncached.generateAccessToken(user);
+        String cachedToken = cached.generateAccessToken(user);
+
+        run("legacy (3 parses)   ", token -> sink = legacyFilter(token, secret), legacyToken);
+        run("verify, no cache    ", token -> sink = uncached.verify(token), uncachedToken);
+        run("verify, cached      ", token -> sink = cached.verify(token), cachedToken);
+    }
+
+    // Odpowiednik dawnego extractUsername + validateToken (extractUsername + isTokenExpired)
+    private static boolean legacyFilter(String token, String secret) {
+        String username = parse(token, secret).getSubject();
+        boolean sameUser = parse(token, secret).getSubject().equals(username);
+        return sameUser && !parse(token, secret).getExpiration().before(new Date());
+    }
+
+    private static Claims parse(String token, String secret) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    private static void run(String name, Consumer<String> verifier, String token) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+
+        for (int i = 0; i < WARMUP; i++) {
+            verifier.accept(token);
+        }
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long cpuBefore = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            verifier.accept(token);
+        }
+        long cpu = threads.getCurrentThreadCpuTime() - cpuBefore;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.printf("%s %8.2f us CPU, %8.1f KB allocated per request%n",
+                name, cpu / 1000.0 / ROUNDS, allocated / 1024.0 / ROUNDS);
+    }
+}
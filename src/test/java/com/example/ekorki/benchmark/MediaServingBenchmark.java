@@ -0,0 +1,129 @@
+package com.example.ekorki.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+// Porównanie wysyłki pliku do gniazda: dawna ścieżka byte[] (cały plik na stercie, jak przy BYTEA),
+// ścieżka MediaFileSender bez sendfile (transferTo do opakowanego strumienia odpowiedzi - kopiowanie
+// kawałkami przez stertę) i transferTo prosto do gniazda, czyli to, co robi Tomcat przy sendfile (kopiowanie w jądrze).
+// Strumień odpowiedzi Tomcata zastępuje tu BufferedOutputStream z jego domyślnym buforem 8 KB.
+// Uruchomienie: mvn test-compile, potem
+// java --enable-preview -cp target/test-classes com.example.ekorki.benchmark.MediaServingBenchmark
+public class MediaServingBenchmark {
+    private static final int WARMUP = 3;
+    private static final int ROUNDS = 10;
+    private static final int RESPONSE_BUFFER_SIZE = 8192;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("media-benchmark");
+        try {
+            for (int megabytes : new int[]{10, 100}) {
+                Path file = createFile(directory, megabytes);
+                run("byte[]         ", file, MediaServingBenchmark::sendAsByteArray);
+                run("servlet stream ", file, MediaServingBenchmark::sendThroughResponseStream);
+                run("sendfile       ", file, MediaServingBenchmark::sendWithTransferTo);
+                Files.delete(file);
+            }
+        } finally {
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private interface Sender {
+        void send(Path file, SocketChannel socket) throws IOException;
+    }
+
+    private static void sendAsByteArray(Path file, SocketChannel socket) throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        OutputStream out = Channels.newOutputStream(socket);
+        out.write(content);
+        out.flush();
+    }
+
+    // Jak gałąź bez sendfile w MediaFileSender
+    private static void sendThroughResponseStream(Path file, SocketChannel socket) throws IOException {
+        OutputStream responseStream = new BufferedOutputStream(Channels.newOutputStream(socket), RESPONSE_BUFFER_SIZE);
+        WritableByteChannel out = Channels.newChannel(responseStream);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = 0;
+            long size = channel.size();
+            while (position < size) {
+                position += channel.transferTo(position, size - position, out);
+            }
+        }
+        responseStream.flush();
+    }
+
+    private static void sendWithTransferTo(Path file, SocketChannel socket) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = 0;
+            long size = channel.size();
+            while (position < size) {
+                position += channel.transferTo(position, size - position, socket);
+            }
+        }
+    }
+
+    private static void run(String name, Path file, Sender sender) throws Exception {
+        long size = Files.size(file);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0))) {
+            Thread drain = Thread.ofPlatform().daemon().start(() -> drain(server));
+            try (SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+                for (int i = 0; i < WARMUP; i++) {
+                    sender.send(file, socket);
+                }
+
+                long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+                long start = System.nanoTime();
+                for (int i = 0; i < ROUNDS; i++) {
+                    sender.send(file, socket);
+                }
+                long elapsed = System.nanoTime() - start;
+                long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+                double seconds = elapsed / 1e9;
+                System.out.printf("%s %4d MB: %8.1f MB/s, %10.1f KB allocated per request%n",
+                        name, size >> 20, (size * ROUNDS / 1048576.0) / seconds, allocated / 1024.0 / ROUNDS);
+            }
+            drain.join();
+        }
+    }
+
+    private static void drain(ServerSocketChannel server) {
+        try (SocketChannel client = server.accept()) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+            while (client.read(buffer) >= 0) {
+                buffer.clear();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static Path createFile(Path directory, int megabytes) throws IOException {
+        Path file = directory.resolve("content-" + megabytes + "mb.bin");
+        byte[] block = new byte[1 << 20];
+        new Random(megabytes).nextBytes(block);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int i = 0; i < megabytes; i++) {
+                out.write(block);
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.ekorki.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Kursor wraca od klienta, więc każdy niepasujący token ma kończyć się IllegalArgumentException (400), nie błędem zapytania
+class CourseCursorTests {
+    private static final CourseCard COURSE = new CourseCard(17L, "Java", BigDecimal.TEN, BigDecimal.ONE, List.of("java"),
+            new BigDecimal("4.25"), 12, "Opis", LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123_000_000),
+            LocalDateTime.of(2024, 3, 2, 8, 0), 3L, 5L, null);
+
+    @Test
+    void roundTripsEverySortOrder() {
+        for (String sortBy : List.of("createdAt", "review", "reviewNumber")) {
+            CourseCursor cursor = CourseCursor.after(sortBy, COURSE);
+
+            assertThat(CourseCursor.decode(cursor.encode(), sortBy)).isEqualTo(cursor);
+        }
+    }
+
+    @Test
+    void decodesKeysInColumnTypes() {
+        assertThat(CourseCursor.decode(CourseCursor.after("createdAt", COURSE).encode(), "createdAt").sortKey())
+                .isEqualTo(COURSE.createdAt());
+        assertThat(CourseCursor.decode(CourseCursor.after("review", COURSE).encode(), "review").sortKey())
+                .isEqualTo(new BigDecimal("4.25"));
+        assertThat(CourseCursor.decode(CourseCursor.after("reviewNumber", COURSE).encode(), "reviewNumber").sortKey())
+                .isEqualTo(12);
+    }
+
+    @Test
+    void missingRatingsSortAsZero() {
+        CourseCard unrated = new CourseCard(3L, "Nowy", BigDecimal.ONE, null, List.of(), null, null, null,
+                LocalDateTime.of(2024, 1, 1, 0, 0), null, 0L, 5L, null);
+
+        assertThat(CourseCursor.after("review", unrated).reviewKey()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(CourseCursor.after("reviewNumber", unrated).reviewNumberKey()).isZero();
+    }
+
+    @Test
+    void undatedCourseSortsBeforeDatedOnesLikeInfinity() {
+        CourseCard undated = new CourseCard(9L, "Bez daty", BigDecimal.ONE, null, List.of(), null, null, null,
+                null, null, 0L, 5L, null);
+
+        CourseCursor cursor = CourseCursor.after("createdAt", undated);
+
+        assertThat(CourseCursor.decode(cursor.encode(), "createdAt")).isEqualTo(cursor);
+        assertThat(cursor.dateKey()).isEqualTo(CourseCursor.UNDATED).isAfter(COURSE.createdAt());
+        assertThat(cursor.dateKey()).isEqualTo(CourseCursor.first("createdAt").dateKey());
+    }
+
+    @Test
+    void blankTokenStartsBeforeEveryCourse() {
+        assertThat(CourseCursor.decode(null, "createdAt")).isEqualTo(CourseCursor.first("createdAt"));
+        assertThat(CourseCursor.decode(" ", "review")).isEqualTo(CourseCursor.first("review"));
+
+        assertThat(CourseCursor.first("createdAt").dateKey()).isAfter(COURSE.createdAt());
+        assertThat(CourseCursor.first("review").reviewKey()).isGreaterThan(COURSE.review());
+        assertThat(CourseCursor.first("reviewNumber").reviewNumberKey()).isGreaterThan(COURSE.reviewNumber());
+        assertThat(CourseCursor.first("review").id()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void rejectsCursorFromAnotherSortOrder() {
+        String token = CourseCursor.after("review", COURSE).encode();
+
+        assertThatThrownBy(() -> CourseCursor.decode(token, "createdAt"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsTokenThatIsNotBase64() {
+        assertThatThrownBy(() -> CourseCursor.decode("not base64!", "createdAt"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        List<List<String>> cases = List.of(
+                List.of("createdAt", "createdAt|2024-03-01T12:30"),
+                List.of("createdAt", "createdAt|yesterday|17"),
+                List.of("createdAt", "createdAt|2024-03-01T12:30|17|extra"),
+                List.of("review", "review|4,25|17"),
+                List.of("reviewNumber", "reviewNumber|12.5|17"),
+                List.of("reviewNumber", "reviewNumber|12|seventeen"));
+
+        for (List<String> invalid : cases) {
+            String token = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(invalid.get(1).getBytes(StandardCharsets.UTF_8));
+
+            assertThatThrownBy(() -> CourseCursor.decode(token, invalid.get(0)))
+                    .as(invalid.get(1))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.ekorki.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Rotacja na pliku kluczy: nowy klucz podpisuje dopiero po activation-delay, a stary weryfikuje tak długo,
+// jak mogą istnieć podpisane nim tokeny
+class JwtKeyRingTests {
+    private static final Duration ROTATION_INTERVAL = Duration.ofDays(7);
+    private static final Duration ACTIVATION_DELAY = Duration.ofMinutes(5);
+    private static final Duration TOKEN_LIFETIME = Duration.ofHours(1);
+
+    @TempDir
+    Path directory;
+
+    private final List<JwtKeyRing> rings = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        rings.forEach(JwtKeyRing::shutdown);
+    }
+
+    @Test
+    void createsFirstKeyActiveImmediately() throws IOException {
+        Path keyFile = directory.resolve("keys/jwt-keys");
+
+        JwtKeyRing ring = fileRing(keyFile);
+
+        assertThat(keyIds(keyFile)).containsExactly(ring.current().id());
+        assertThat(ring.find(ring.current().id())).contains(ring.current());
+    }
+
+    @Test
+    void keySignsOnlyAfterActivationDelay() throws IOException {
+        Instant now = Instant.now();
+        Path keyFile = writeKeys(
+                line("old", now.minus(Duration.ofDays(1))),
+                line("new", now.minus(Duration.ofMinutes(1))));
+
+        JwtKeyRing ring = fileRing(keyFile);
+
+        assertThat(ring.current().id()).isEqualTo("old");
+        // Inna instancja mogła już podpisać nowym kluczem - weryfikacja musi go znać przed aktywacją
+        assertThat(ring.find("new")).isPresent();
+    }
+
+    @Test
+    void newestActiveKeySigns() throws IOException {
+        Instant now = Instant.now();
+        Path keyFile = writeKeys(
+                line("old", now.minus(Duration.ofDays(1))),
+                line("new", now.minus(ACTIVATION_DELAY).minusSeconds(1)));
+
+        assertThat(fileRing(keyFile).current().id()).isEqualTo("new");
+    }
+
+    @Test
+    void rotationKeepsOnlyKeysWithLiveTokens() throws IOException {
+        Instant now = Instant.now();
+        Path keyFile = writeKeys(
+                line("oldest", now.minus(Duration.ofDays(30))),
+                line("previous", now.minus(Duration.ofDays(8))));
+
+        JwtKeyRing ring = fileRing(keyFile);
+
+        // "oldest" zastąpiony dawno temu - jego tokeny wygasły; "previous" podpisuje, dopóki nowy klucz nie dojrzeje
+        List<String> ids = keyIds(keyFile);
+        assertThat(ids).hasSize(2).startsWith("previous").doesNotContain("oldest");
+        assertThat(ring.find("oldest")).isEmpty();
+        assertThat(ring.find(ids.get(1))).isPresent();
+        assertThat(ring.current().id()).isEqualTo("previous");
+    }
+
+    @Test
+    void rotationKeepsPredecessorWhileItsTokensMayBeValid() throws IOException {
+        Instant now = Instant.now();
+        Path keyFile = writeKeys(
+                line("older", now.minus(Duration.ofDays(15))),
+                line("previous", now.minus(Duration.ofDays(8))));
+
+        // Tokeny żyją dłużej niż okres rotacji - "previous" podpisuje od 8 dni, więc tokeny "older" mogą być ważne
+        fileRing(keyFile, Duration.ofDays(10));
+
+        assertThat(keyIds(keyFile)).hasSize(3).startsWith("older", "previous");
+    }
+
+    @Test
+    void keepsRingWhenRotationIsNotDue() throws IOException {
+        Instant now = Instant.now();
+        Path keyFile = writeKeys(line("current", now.minus(Duration.ofDays(6))));
+
+        JwtKeyRing ring = fileRing(keyFile);
+
+        assertThat(keyIds(keyFile)).containsExactly("current");
+        assertThat(ring.current().id()).isEqualTo("current");
+    }
+
+    @Test
+    void configuredKeysSignWithFirstAndVerifyWithAll() throws IOException {
+        JwtKeyRing ring = new JwtKeyRing("", List.of("a:" + "a".repeat(32), "b:" + "b".repeat(32)), "",
+                ROTATION_INTERVAL, ACTIVATION_DELAY, Duration.ofMinutes(1), TOKEN_LIFETIME.toMillis());
+
+        assertThat(ring.current().id()).isEqualTo("a");
+        assertThat(ring.find("b")).isPresent();
+        assertThat(ring.find("c")).isEmpty();
+        assertThat(ring.find(null)).isEmpty();
+    }
+
+    @Test
+    void rejectsSecretsShorterThan256Bits() {
+        assertThatThrownBy(() -> new JwtKeyRing("too-short", List.of(), "",
+                ROTATION_INTERVAL, ACTIVATION_DELAY, Duration.ofMinutes(1), TOKEN_LIFETIME.toMillis()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private JwtKeyRing fileRing(Path keyFile) throws IOException {
+        return fileRing(keyFile, TOKEN_LIFETIME);
+    }
+
+    private JwtKeyRing fileRing(Path keyFile, Duration tokenLifetime) throws IOException {
+        JwtKeyRing ring = new JwtKeyRing("", List.of(), keyFile.toString(),
+                ROTATION_INTERVAL, ACTIVATION_DELAY, Duration.ofHours(1), tokenLifetime.toMillis());
+        rings.add(ring);
+        return ring;
+    }
+
+    private Path writeKeys(String... lines) throws IOException {
+        Path keyFile = directory.resolve("jwt-keys");
+        Files.writeString(keyFile, String.join("\n", lines) + "\n", StandardCharsets.UTF_8);
+        return keyFile;
+    }
+
+    private static String line(String id, Instant createdAt) {
+        byte[] key = (id + "-".repeat(32)).getBytes(StandardCharsets.UTF_8);
+        return id + " " + createdAt.getEpochSecond() + " " + Base64.getEncoder().encodeToString(key);
+    }
+
+    // Kolejność z pliku - rotacja zapisuje klucze od najstarszego
+    private static List<String> keyIds(Path keyFile) throws IOException {
+        return Files.readAllLines(keyFile, StandardCharsets.UTF_8).stream()
+                .filter(line -> !line.isBlank() && !line.startsWith("#"))
+                .map(line -> line.split(" ")[0])
+                .toList();
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.ekorki.service.catalog;
+
+import com.example.ekorki.model.CourseCatalogRow;
+import com.example.ekorki.model.CourseSearchFilter;
+import com.example.ekorki.model.UserCourseSet;
+import com.example.ekorki.repository.CourseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Indeks ma zwracać to samo co zapytanie SQL sklepu - także po punktowych zmianach migawki
+class CourseCatalogIndexTests {
+    private static final List<String> SORTS = List.of("createdAt", "review", "reviewNumber");
+    private static final List<String> TAGS = List.of("java", "python", "sql", "math");
+
+    private final Map<Long, CourseCatalogRow> database = new TreeMap<>();
+    private final CourseRepository courseRepository = mock(CourseRepository.class);
+    private final Random random = new Random(42);
+    private CourseCatalogIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(courseRepository.findAllCatalogRows()).thenAnswer(invocation -> new ArrayList<>(database.values()));
+        when(courseRepository.findCatalogRowById(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(database.get(invocation.<Long>getArgument(0))));
+
+        for (long id = 1; id <= 200; id++) {
+            database.put(id, randomRow(id));
+        }
+        index = newIndex();
+    }
+
+    @Test
+    void matchesSqlOrderingAndFilters() {
+        for (CourseSearchFilter filter : filters()) {
+            for (String sort : SORTS) {
+                assertSameAsSql(index, filter, sort);
+            }
+        }
+    }
+
+    @Test
+    void pagesThroughResultsLikeOffsetAndLimit() {
+        CourseSearchFilter filter = CourseSearchFilter.builder().tags(List.of("java")).build();
+        List<Long> all = expected(filter, "review");
+
+        CourseCatalogIndex.SearchResult page = index.search(filter, "review", 10, 5, UserCourseSet.EMPTY);
+
+        assertThat(page.total()).isEqualTo(all.size());
+        assertThat(page.ids()).isEqualTo(all.subList(10, 15));
+    }
+
+    @Test
+    void excludesPurchasedCourses() {
+        UserCourseSet purchased = UserCourseSet.of(List.of(1L, 2L, 3L));
+
+        CourseCatalogIndex.SearchResult result = index.search(
+                CourseSearchFilter.builder().build(), "createdAt", 0, 500, purchased);
+
+        assertThat(result.ids()).doesNotContain(1L, 2L, 3L).hasSize(197);
+    }
+
+    @Test
+    void patchedSnapshotMatchesSqlAfterChanges() {
+        for (int i = 0; i < 300; i++) {
+            long id = switch (random.nextInt(4)) {
+                // Nowy kurs - id rośnie jak w kolumnie IDENTITY
+                case 0 -> ((TreeMap<Long, CourseCatalogRow>) database).lastKey() + 1;
+                case 1 -> {
+                    long removed = 1 + random.nextInt(200);
+                    database.remove(removed);
+                    yield removed;
+                }
+                default -> 1 + random.nextInt(200);
+            };
+            if (database.containsKey(id) || id > 200) {
+                database.put(id, randomRow(id));
+            }
+            index.onCourseChanged(new CourseChangedEvent(id));
+        }
+
+        assertThat(index.isReady()).isTrue();
+        for (CourseSearchFilter filter : filters()) {
+            for (String sort : SORTS) {
+                assertSameAsSql(index, filter, sort);
+            }
+        }
+    }
+
+    @Test
+    void reloadsAfterFailedRefresh() {
+        when(courseRepository.findCatalogRowById(7L)).thenThrow(new IllegalStateException("connection lost"));
+        index.onCourseChanged(new CourseChangedEvent(7L));
+        assertThat(index.isReady()).isFalse();
+
+        index.reloadIfFailed();
+
+        assertThat(index.isReady()).isTrue();
+    }
+
+    private CourseCatalogIndex newIndex() {
+        CourseCatalogIndex catalogIndex = new CourseCatalogIndex(courseRepository);
+        ReflectionTestUtils.setField(catalogIndex, "enabled", true);
+        catalogIndex.load();
+        return catalogIndex;
+    }
+
+    private void assertSameAsSql(CourseCatalogIndex catalogIndex, CourseSearchFilter filter, String sort) {
+        List<Long> expected = expected(filter, sort);
+        CourseCatalogIndex.SearchResult result = catalogIndex.search(filter, sort, 0, 1000, UserCourseSet.EMPTY);
+        assertThat(result.ids()).as("%s sorted by %s", filter, sort).isEqualTo(expected);
+        assertThat(result.total()).isEqualTo(expected.size());
+    }
+
+    private List<CourseSearchFilter> filters() {
+        return List.of(
+                CourseSearchFilter.builder().build(),
+                CourseSearchFilter.builder().search("Kurs 1").build(),
+                CourseSearchFilter.builder().search("ava").build(),
+                CourseSearchFilter.builder().tags(List.of("sql", "math")).build(),
+                CourseSearchFilter.builder().tags(List.of("java")).search("kurs").excludeOwnedBy(3L).build(),
+                CourseSearchFilter.builder().minPrice(new BigDecimal("20.50")).maxPrice(new BigDecimal("60")).build());
+    }
+
+    // Odpowiednik WHERE i ORDER BY <klucz> DESC, c.id DESC z CourseSearchRepository (NULL na początku przy DESC)
+    private List<Long> expected(CourseSearchFilter filter, String sort) {
+        Comparator<CourseCatalogRow> byKey = switch (sort) {
+            case "review" -> Comparator.comparing(row -> row.review() != null ? row.review() : BigDecimal.ZERO);
+            case "reviewNumber" -> Comparator.comparing(row -> row.reviewNumber() != null ? row.reviewNumber() : 0);
+            default -> Comparator.comparing(CourseCatalogRow::createdAt, Comparator.nullsLast(Comparator.naturalOrder()));
+        };
+
+        Stream<CourseCatalogRow> rows = database.values().stream();
+        if (filter.hasSearch()) {
+            String search = filter.getSearch().toLowerCase(Locale.ROOT);
+            rows = rows.filter(row -> row.name().toLowerCase(Locale.ROOT).contains(search));
+        }
+        if (filter.hasTags()) {
+            rows = rows.filter(row -> row.tags().stream().anyMatch(filter.getTags()::contains));
+        }
+        if (filter.getExcludeOwnedBy() != null) {
+            rows = rows.filter(row -> !row.ownerId().equals(filter.getExcludeOwnedBy()));
+        }
+        if (filter.getMinPrice() != null) {
+            rows = rows.filter(row -> row.price().compareTo(filter.getMinPrice()) >= 0);
+        }
+        if (filter.getMaxPrice() != null) {
+            rows = rows.filter(row -> row.price().compareTo(filter.getMaxPrice()) <= 0);
+        }
+        return rows.sorted(byKey.thenComparing(CourseCatalogRow::id).reversed())
+                .map(CourseCatalogRow::id)
+                .toList();
+    }
+
+    private CourseCatalogRow randomRow(long id) {
+        List<String> tags = TAGS.stream().filter(tag -> random.nextInt(3) == 0).toList();
+        // Celowo dużo remisów, żeby sprawdzić rozstrzyganie po id
+        BigDecimal review = random.nextInt(5) == 0 ? null : BigDecimal.valueOf(random.nextInt(10), 1).add(BigDecimal.valueOf(4));
+        LocalDateTime createdAt = random.nextInt(10) == 0 ? null : LocalDateTime.of(2024, 1, 1, 0, 0).plusDays(random.nextInt(30));
+        return new CourseCatalogRow(id, (random.nextBoolean() ? "Kurs " : "Java ") + random.nextInt(50), review,
+                random.nextInt(5) == 0 ? null : random.nextInt(20), createdAt,
+                BigDecimal.valueOf(1000 + random.nextInt(8000), 2), (long) random.nextInt(5), tags);
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.ekorki.service.entity;
+
+import com.example.ekorki.entity.LoginAttemptEntity;
+import com.example.ekorki.repository.LoginAttemptRepository;
+import com.example.ekorki.service.IpHasher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.ekorki.service.entity.LoginAttemptService.WINDOW_BUCKETS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Limit logowań liczony w pamięci: przesuwanie okna, progi per IP i per email oraz odbudowa po restarcie
+class LoginAttemptServiceTests {
+    private static final Duration WINDOW = Duration.ofMinutes(5);
+    private static final int MAX_FAILED = 5;
+
+    private final LoginAttemptRepository loginAttemptRepository = mock(LoginAttemptRepository.class);
+    private final IpHasher ipHasher = new IpHasher();
+    private final LoginAttemptService service = new LoginAttemptService(loginAttemptRepository, ipHasher,
+            mock(JdbcTemplate.class), MAX_FAILED, MAX_FAILED, WINDOW, 1000, 100);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.shutdown();
+    }
+
+    @Test
+    void windowCountsOnlyLastBuckets() {
+        LoginAttemptService.SlidingWindow window = new LoginAttemptService.SlidingWindow();
+        window.add(100);
+        window.add(100);
+        window.add(105);
+
+        assertThat(window.count(105)).isEqualTo(3);
+        // Przedział 100 jest ostatnim w oknie dla 109, a dla 110 już z niego wypada
+        assertThat(window.count(100 + WINDOW_BUCKETS - 1)).isEqualTo(3);
+        assertThat(window.count(100 + WINDOW_BUCKETS)).isEqualTo(1);
+        assertThat(window.count(105 + WINDOW_BUCKETS)).isZero();
+    }
+
+    @Test
+    void newBucketReplacesSlotOfExpiredOne() {
+        LoginAttemptService.SlidingWindow window = new LoginAttemptService.SlidingWindow();
+        window.add(100);
+        window.add(100);
+        // Ten sam slot tablicy, o pełne okno później - licznik zaczyna się od nowa
+        window.add(100 + WINDOW_BUCKETS);
+
+        assertThat(window.count(100 + WINDOW_BUCKETS)).isEqualTo(1);
+    }
+
+    @Test
+    void olderAttemptDoesNotOverwriteNewerBucket() {
+        LoginAttemptService.SlidingWindow window = new LoginAttemptService.SlidingWindow();
+        window.add(100 + WINDOW_BUCKETS);
+        // Spóźniona próba z odbudowy trafia w slot zajęty już przez nowszy przedział
+        window.add(100);
+
+        assertThat(window.count(100 + WINDOW_BUCKETS)).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() throws InterruptedException {
+        LoginAttemptService.SlidingWindow window = new LoginAttemptService.SlidingWindow();
+        int threads = 8;
+        int addsPerThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < addsPerThread; j++) {
+                    window.add(42);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(window.count(42)).isEqualTo(threads * addsPerThread);
+    }
+
+    @Test
+    void blocksEmailAfterFailuresFromManyAddresses() {
+        for (int i = 0; i < MAX_FAILED - 1; i++) {
+            service.recordLoginAttempt("student@example.com", "10.0.0." + i, false);
+        }
+        assertThat(service.isAccountBlocked("student@example.com", "10.0.1.1")).isFalse();
+
+        // Wielkość liter i spacje nie omijają limitu na konto
+        service.recordLoginAttempt(" Student@Example.com", "10.0.0.99", false);
+
+        assertThat(service.isAccountBlocked("student@example.com", "10.0.1.1")).isTrue();
+        assertThat(service.isAccountBlocked("other@example.com", "10.0.1.1")).isFalse();
+    }
+
+    @Test
+    void blocksAddressAfterFailuresOnManyAccounts() {
+        for (int i = 0; i < MAX_FAILED; i++) {
+            service.recordLoginAttempt("user" + i + "@example.com", "192.168.0.7", false);
+        }
+
+        assertThat(service.isAccountBlocked("fresh@example.com", "192.168.0.7")).isTrue();
+        assertThat(service.isAccountBlocked("fresh@example.com", "192.168.0.8")).isFalse();
+    }
+
+    @Test
+    void successfulLoginsDoNotCount() {
+        for (int i = 0; i < MAX_FAILED * 2; i++) {
+            service.recordLoginAttempt("student@example.com", "10.0.0.1", true);
+        }
+
+        assertThat(service.isAccountBlocked("student@example.com", "10.0.0.1")).isFalse();
+    }
+
+    @Test
+    void rebuildsCountersFromCurrentWindowOnStartup() {
+        LocalDateTime now = LocalDateTime.now();
+        List<LoginAttemptEntity> attempts = new ArrayList<>();
+        for (int i = 0; i < MAX_FAILED; i++) {
+            attempts.add(failedAttempt("student@example.com", "10.0.0." + i, now.minusMinutes(4)));
+            // Sprzed okna - repozytorium mogło je zwrócić przy przesuniętym zegarze, ale nie mogą blokować
+            attempts.add(failedAttempt("old@example.com", "10.0.1." + i, now.minus(WINDOW).minusMinutes(1)));
+        }
+        when(loginAttemptRepository.findBySuccessfulFalseAndAttemptTimeAfter(any())).thenReturn(attempts);
+
+        service.load();
+
+        assertThat(service.isAccountBlocked("student@example.com", "10.0.2.1")).isTrue();
+        assertThat(service.isAccountBlocked("old@example.com", "10.0.2.1")).isFalse();
+    }
+
+    @Test
+    void startsFromZeroWhenRebuildFails() {
+        when(loginAttemptRepository.findBySuccessfulFalseAndAttemptTimeAfter(any()))
+                .thenThrow(new IllegalStateException("database unavailable"));
+
+        service.load();
+
+        assertThat(service.isAccountBlocked("student@example.com", "10.0.0.1")).isFalse();
+    }
+
+    private LoginAttemptEntity failedAttempt(String email, String ip, LocalDateTime time) {
+        return LoginAttemptEntity.builder()
+                .email(email)
+                .ipAddress(ipHasher.hashIp(ip))
+                .attemptTime(time)
+                .successful(false)
+                .build();
+    }
+}